@@ -0,0 +1,107 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.entity.*;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic in-memory documents for the benchmarks. Entities are built without
+ * a persistence context, ids are assigned directly.
+ */
+final class BenchmarkData {
+
+    static final int RESOURCES = 1_000;
+    static final int UNITS = 20;
+
+    private final List<Resource> resources = new ArrayList<>(RESOURCES);
+    private final List<Unit> units = new ArrayList<>(UNITS);
+    private final SplittableRandom random;
+
+    BenchmarkData(long seed) {
+        this.random = new SplittableRandom(seed);
+        for (int i = 1; i <= RESOURCES; i++) {
+            resources.add(Resource.builder()
+                    .id((long) i)
+                    .name("Resource " + i)
+                    .state(EntityState.ACTIVE)
+                    .build());
+        }
+        for (int i = 1; i <= UNITS; i++) {
+            Unit u = new Unit();
+            u.setName("Unit " + i);
+            u.setState(EntityState.ACTIVE);
+            setId(u, (long) i);
+            units.add(u);
+        }
+    }
+
+    Receipt receipt(int lines) {
+        Receipt r = Receipt.builder()
+                .id(1L)
+                .number("R-" + lines)
+                .date(LocalDate.of(2024, 1, 1))
+                .build();
+
+        List<ReceiptItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(ReceiptItem.builder()
+                    .resource(resource())
+                    .unit(unit())
+                    .quantity(quantity())
+                    .build());
+        }
+        r.setItems(items);
+        return r;
+    }
+
+    Shipment shipment(int lines) {
+        Client client = new Client();
+        client.setName("Client");
+        client.setState(EntityState.ACTIVE);
+        setId(client, 1L);
+
+        Shipment s = new Shipment();
+        s.setNumber("S-" + lines);
+        s.setDate(LocalDate.of(2024, 1, 1));
+        s.setClient(client);
+        setId(s, 1L);
+
+        List<ShipmentItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            ShipmentItem it = new ShipmentItem();
+            it.setResource(resource());
+            it.setUnit(unit());
+            it.setQuantity(quantity());
+            items.add(it);
+        }
+        s.setItems(items);
+        return s;
+    }
+
+    private Resource resource() {
+        return resources.get(random.nextInt(RESOURCES));
+    }
+
+    private Unit unit() {
+        return units.get(random.nextInt(UNITS));
+    }
+
+    private BigDecimal quantity() {
+        return BigDecimal.valueOf(random.nextLong(1, 100_000), 3);
+    }
+
+    private static void setId(Object entity, Long id) {
+        try {
+            Field f = entity.getClass().getDeclaredField("id");
+            f.setAccessible(true);
+            f.set(entity, id);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
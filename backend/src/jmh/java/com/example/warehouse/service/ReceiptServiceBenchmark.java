@@ -0,0 +1,59 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.ReceiptListItemDto;
+import com.example.warehouse.entity.Receipt;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptServiceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int lines;
+
+    private ReceiptService service;
+    private Receipt receipt;
+    private Map<BalanceKey, BigDecimal> oldTotals;
+    private Map<BalanceKey, BigDecimal> newTotals;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Only the pure in-memory paths are measured, so no collaborators are needed.
+        service = new ReceiptService(null, null, null, null, null);
+
+        BenchmarkData data = new BenchmarkData(42);
+        receipt = data.receipt(lines);
+        oldTotals = service.aggregateReceiptItems(receipt.getItems());
+        newTotals = service.aggregateReceiptItems(data.receipt(lines).getItems());
+    }
+
+    @Benchmark
+    public Map<BalanceKey, BigDecimal> aggregateReceiptItems() {
+        return service.aggregateReceiptItems(receipt.getItems());
+    }
+
+    @Benchmark
+    public Map<BalanceKey, BigDecimal> totalsDelta() {
+        return service.totalsDelta(oldTotals, newTotals);
+    }
+
+    @Benchmark
+    public ReceiptListItemDto toListItemDtoWithItems() {
+        return service.toListItemDtoWithItems(receipt);
+    }
+
+    @Benchmark
+    public ReceiptDto toDto() {
+        return service.toDto(receipt);
+    }
+}
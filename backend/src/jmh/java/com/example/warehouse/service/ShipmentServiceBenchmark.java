@@ -0,0 +1,47 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.dto.ShipmentListItemDto;
+import com.example.warehouse.entity.Shipment;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShipmentServiceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int lines;
+
+    private ShipmentService service;
+    private Shipment shipment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new ShipmentService(null, null, null, null, null, null, null);
+        shipment = new BenchmarkData(42).shipment(lines);
+    }
+
+    @Benchmark
+    public Map<BalanceKey, BigDecimal> aggregateSignDeltas() {
+        return service.aggregateItems(shipment.getItems(), true);
+    }
+
+    @Benchmark
+    public ShipmentListItemDto toListItemDto() {
+        return service.toListItemDto(shipment);
+    }
+
+    @Benchmark
+    public ShipmentDto toDto() {
+        return service.toDto(shipment);
+    }
+}
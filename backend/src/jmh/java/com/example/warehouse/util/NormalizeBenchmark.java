@@ -0,0 +1,40 @@
+package com.example.warehouse.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NormalizeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int lines;
+
+    private String[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] pads = {"", " ", "  ", "\t", " \n "};
+
+        values = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            String pad = pads[random.nextInt(pads.length)];
+            values[i] = pad + "R-" + random.nextInt(1_000_000) + pad + "batch" + pad;
+        }
+    }
+
+    @Benchmark
+    public void normalize(Blackhole bh) {
+        for (String v : values) {
+            bh.consume(Normalize.normalize(v));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.warehouse.loadtest;
+
+/**
+ * Operations driven by the load test, keyed by the route they hit.
+ */
+enum Endpoint {
+
+    CREATE_RECEIPT("POST /api/receipts", 20),
+    SEARCH_RECEIPTS("GET /api/receipts", 30),
+    SIGN_SHIPMENT("POST /api/shipments/{id}/sign", 10),
+    REVOKE_SHIPMENT("POST /api/shipments/{id}/revoke", 10),
+    LIST_BALANCES("GET /api/balances", 30);
+
+    final String route;
+    final int weight;
+
+    Endpoint(String route, int weight) {
+        this.route = route;
+        this.weight = weight;
+    }
+}
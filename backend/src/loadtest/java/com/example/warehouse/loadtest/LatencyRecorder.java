@@ -0,0 +1,59 @@
+package com.example.warehouse.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-worker latency samples. Each worker owns one recorder, so recording is
+ * lock-free; recorders are merged once the run is over.
+ */
+final class LatencyRecorder {
+
+    private final Map<Endpoint, Samples> samples = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, long[]> errors = new EnumMap<>(Endpoint.class);
+
+    void record(Endpoint e, long nanos) {
+        samples.computeIfAbsent(e, k -> new Samples()).add(nanos);
+    }
+
+    void error(Endpoint e) {
+        errors.computeIfAbsent(e, k -> new long[1])[0]++;
+    }
+
+    void mergeInto(LatencyRecorder target) {
+        samples.forEach((e, s) -> target.samples.computeIfAbsent(e, k -> new Samples()).addAll(s));
+        errors.forEach((e, c) -> target.errors.computeIfAbsent(e, k -> new long[1])[0] += c[0]);
+    }
+
+    long[] sorted(Endpoint e) {
+        Samples s = samples.get(e);
+        if (s == null) return new long[0];
+        long[] copy = Arrays.copyOf(s.values, s.size);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    long errors(Endpoint e) {
+        long[] c = errors.get(e);
+        return c == null ? 0 : c[0];
+    }
+
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+}
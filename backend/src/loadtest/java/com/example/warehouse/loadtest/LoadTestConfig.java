@@ -0,0 +1,54 @@
+package com.example.warehouse.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from {@code --key=value} program arguments.
+ */
+record LoadTestConfig(int concurrency,
+                      Duration warmup,
+                      Duration duration,
+                      int resources,
+                      int units,
+                      int clients,
+                      int receipts,
+                      int linesPerDocument,
+                      int shipmentsPerWorker,
+                      int poolSize,
+                      Path outputDir) {
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> m = new HashMap<>();
+        for (String a : args) {
+            if (a == null || !a.startsWith("--")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected --key=value, got: " + a);
+            m.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+
+        return new LoadTestConfig(
+                intArg(m, "concurrency", 64),
+                Duration.ofSeconds(intArg(m, "warmupSeconds", 10)),
+                Duration.ofSeconds(intArg(m, "durationSeconds", 30)),
+                intArg(m, "resources", 200),
+                intArg(m, "units", 10),
+                intArg(m, "clients", 20),
+                intArg(m, "receipts", 10_000),
+                intArg(m, "lines", 5),
+                intArg(m, "shipmentsPerWorker", 8),
+                intArg(m, "poolSize", 20),
+                Path.of(m.getOrDefault("out", "target/loadtest"))
+        );
+    }
+
+    private static int intArg(Map<String, String> m, String key, int def) {
+        String v = m.get(key);
+        if (v == null || v.isBlank()) return def;
+        int n = Integer.parseInt(v.trim());
+        if (n < 0) throw new IllegalArgumentException("--" + key + " must be >= 0");
+        return n;
+    }
+}
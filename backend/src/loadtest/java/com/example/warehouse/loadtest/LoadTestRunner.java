@@ -0,0 +1,327 @@
+package com.example.warehouse.loadtest;
+
+import com.example.warehouse.StorageGovernmentApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end throughput run: embedded PostgreSQL, the full Spring Boot app on a
+ * random port, a seeded data set and {@code concurrency} virtual-thread clients
+ * hitting the REST API. Writes a JSON report per run plus {@code latest.json}.
+ */
+public final class LoadTestRunner {
+
+    private static final DateTimeFormatter FILE_TS =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final LoadTestConfig config;
+    private final ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private HttpClient http;
+    private URI base;
+    private Seeder.Dataset data;
+
+    private LoadTestRunner(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestRunner(LoadTestConfig.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext ctx = startApp(pg)) {
+
+            int port = ((ServletWebServerApplicationContext) ctx).getWebServer().getPort();
+            base = URI.create("http://localhost:" + port);
+
+            log("seeding data set");
+            data = new Seeder(ctx.getBean(JdbcTemplate.class), config).seed();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                http = HttpClient.newBuilder()
+                        .executor(executor)
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build();
+
+                Instant started = Instant.now();
+                LatencyRecorder total = drive(executor);
+                writeReport(started, total);
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext startApp(EmbeddedPostgres pg) {
+        log("starting application");
+        // Passed as command line arguments so they take precedence over application.properties.
+        String[] args = {
+                "--server.port=0",
+                "--spring.datasource.url=" + pg.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.datasource.hikari.maximum-pool-size=" + config.poolSize(),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN"
+        };
+        return new SpringApplicationBuilder(StorageGovernmentApplication.class).run(args);
+    }
+
+    private LatencyRecorder drive(ExecutorService executor) throws Exception {
+        long warmupEnd = System.nanoTime() + config.warmup().toNanos();
+        long end = warmupEnd + config.duration().toNanos();
+        log("running " + config.concurrency() + " clients for " + config.duration().toSeconds()
+                + "s after " + config.warmup().toSeconds() + "s warmup");
+
+        List<Future<LatencyRecorder>> workers = new ArrayList<>();
+        for (int w = 0; w < config.concurrency(); w++) {
+            Worker worker = new Worker(w, warmupEnd, end);
+            workers.add(executor.submit(worker::call));
+        }
+
+        LatencyRecorder total = new LatencyRecorder();
+        for (Future<LatencyRecorder> f : workers) {
+            f.get().mergeInto(total);
+        }
+        return total;
+    }
+
+    private final class Worker {
+
+        private final int index;
+        private final long warmupEnd;
+        private final long end;
+        private final SplittableRandom random;
+        private final List<Long> shipments;
+        private final LatencyRecorder recorder = new LatencyRecorder();
+
+        private int shipmentCursor;
+        private boolean signed;
+        private int receiptSeq;
+
+        Worker(int index, long warmupEnd, long end) {
+            this.index = index;
+            this.warmupEnd = warmupEnd;
+            this.end = end;
+            this.random = new SplittableRandom(1_000L + index);
+            this.shipments = data.shipmentsByWorker().get(index);
+        }
+
+        LatencyRecorder call() {
+            int totalWeight = Arrays.stream(Endpoint.values()).mapToInt(e -> e.weight).sum();
+
+            while (System.nanoTime() < end) {
+                Endpoint e = pick(random.nextInt(totalWeight));
+                if (e == Endpoint.SIGN_SHIPMENT || e == Endpoint.REVOKE_SHIPMENT) {
+                    if (shipments.isEmpty()) continue;
+                    e = signed ? Endpoint.REVOKE_SHIPMENT : Endpoint.SIGN_SHIPMENT;
+                }
+
+                long t0 = System.nanoTime();
+                boolean ok = send(request(e));
+                long elapsed = System.nanoTime() - t0;
+
+                if (e == Endpoint.SIGN_SHIPMENT && ok) {
+                    signed = true;
+                } else if (e == Endpoint.REVOKE_SHIPMENT && ok) {
+                    signed = false;
+                    shipmentCursor = (shipmentCursor + 1) % shipments.size();
+                }
+
+                if (t0 < warmupEnd) continue;
+                if (ok) recorder.record(e, elapsed);
+                else recorder.error(e);
+            }
+            return recorder;
+        }
+
+        private HttpRequest request(Endpoint e) {
+            return switch (e) {
+                case CREATE_RECEIPT -> post("/api/receipts", receiptBody());
+                case SEARCH_RECEIPTS -> get("/api/receipts?limit=50&resourceIds=" + anyOf(data.resourceIds()));
+                case SIGN_SHIPMENT -> post("/api/shipments/" + shipments.get(shipmentCursor) + "/sign", null);
+                case REVOKE_SHIPMENT -> post("/api/shipments/" + shipments.get(shipmentCursor) + "/revoke", null);
+                case LIST_BALANCES -> get("/api/balances");
+            };
+        }
+
+        private String receiptBody() {
+            List<Long> resources = data.resourceIds();
+            int lines = Math.min(config.linesPerDocument(), resources.size());
+            int start = random.nextInt(resources.size());
+            Long unitId = anyOf(data.unitIds());
+
+            List<Map<String, Object>> items = new ArrayList<>(lines);
+            for (int l = 0; l < lines; l++) {
+                items.add(Map.of(
+                        "resourceId", resources.get((start + l) % resources.size()),
+                        "unitId", unitId,
+                        "quantity", random.nextInt(1, 1_000)));
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("number", "LT-C-" + index + "-" + (++receiptSeq));
+            body.put("date", LocalDate.now().toString());
+            body.put("items", items);
+            try {
+                return json.writeValueAsString(body);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private Long anyOf(List<Long> ids) {
+            return ids.get(random.nextInt(ids.size()));
+        }
+    }
+
+    private static Endpoint pick(int roll) {
+        for (Endpoint e : Endpoint.values()) {
+            if (roll < e.weight) return e;
+            roll -= e.weight;
+        }
+        throw new IllegalStateException();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private boolean send(HttpRequest request) {
+        try {
+            HttpResponse<Void> res = http.send(request, HttpResponse.BodyHandlers.discarding());
+            return res.statusCode() / 100 == 2;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // ---------- report ----------
+
+    record EndpointReport(String endpoint, long requests, long errors, double throughputPerSec,
+                          double meanMs, double p50Ms, double p99Ms, double p999Ms, double maxMs) {}
+
+    record Report(String startedAt, String commit, Map<String, Object> config,
+                  double measuredSeconds, long requests, long errors, double throughputPerSec,
+                  List<EndpointReport> endpoints) {}
+
+    private void writeReport(Instant started, LatencyRecorder total) throws IOException {
+        double seconds = config.duration().toMillis() / 1000.0;
+
+        List<EndpointReport> endpoints = new ArrayList<>();
+        long requests = 0;
+        long errors = 0;
+        for (Endpoint e : Endpoint.values()) {
+            long[] s = total.sorted(e);
+            long err = total.errors(e);
+            requests += s.length;
+            errors += err;
+            endpoints.add(new EndpointReport(
+                    e.route, s.length, err, round(s.length / seconds),
+                    ms(mean(s)), ms(percentile(s, 0.50)), ms(percentile(s, 0.99)),
+                    ms(percentile(s, 0.999)), ms(s.length == 0 ? 0 : s[s.length - 1])));
+        }
+
+        Map<String, Object> cfg = new LinkedHashMap<>();
+        cfg.put("concurrency", config.concurrency());
+        cfg.put("warmupSeconds", config.warmup().toSeconds());
+        cfg.put("durationSeconds", config.duration().toSeconds());
+        cfg.put("resources", config.resources());
+        cfg.put("units", config.units());
+        cfg.put("clients", config.clients());
+        cfg.put("receipts", config.receipts());
+        cfg.put("lines", config.linesPerDocument());
+        cfg.put("shipmentsPerWorker", config.shipmentsPerWorker());
+        cfg.put("poolSize", config.poolSize());
+
+        Report report = new Report(started.toString(), gitCommit(), cfg, seconds,
+                requests, errors, round(requests / seconds), endpoints);
+
+        Files.createDirectories(config.outputDir());
+        Path file = config.outputDir().resolve("loadtest-" + FILE_TS.format(started) + ".json");
+        json.writeValue(file.toFile(), report);
+        Files.copy(file, config.outputDir().resolve("latest.json"), StandardCopyOption.REPLACE_EXISTING);
+
+        for (EndpointReport r : endpoints) {
+            log(String.format(Locale.ROOT, "%-32s %8d req %6d err %9.1f req/s  p50 %7.2f  p99 %7.2f  p999 %7.2f ms",
+                    r.endpoint(), r.requests(), r.errors(), r.throughputPerSec(), r.p50Ms(), r.p99Ms(), r.p999Ms()));
+        }
+        log("report written to " + file.toAbsolutePath());
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+
+    private static long mean(long[] values) {
+        if (values.length == 0) return 0;
+        long sum = 0;
+        for (long v : values) sum += v;
+        return sum / values.length;
+    }
+
+    private static double ms(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000.0) / 1000.0;
+    }
+
+    private static String gitCommit() {
+        try {
+            Process p = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String out = new String(p.getInputStream().readAllBytes()).trim();
+            return p.waitFor() == 0 ? out : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static void log(String msg) {
+        System.out.println("[loadtest] " + msg);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.warehouse.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills a freshly migrated database with reference data, historical receipts,
+ * their ledger and rollup entries, matching balances and a pool of draft shipments per worker. Goes straight
+ * through JDBC so that seeding does not show up in the measured numbers.
+ */
+final class Seeder {
+
+    record Dataset(List<Long> resourceIds, List<Long> unitIds, List<Long> clientIds, List<List<Long>> shipmentsByWorker) {}
+
+    private final JdbcTemplate jdbc;
+    private final LoadTestConfig config;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    Seeder(JdbcTemplate jdbc, LoadTestConfig config) {
+        this.jdbc = jdbc;
+        this.config = config;
+    }
+
+    Dataset seed() {
+        List<Long> resourceIds = jdbc.queryForList(
+                "insert into resources(name, state) select 'LT Resource ' || g, 'ACTIVE' " +
+                        "from generate_series(1, ?) g returning id", Long.class, config.resources());
+        List<Long> unitIds = jdbc.queryForList(
+                "insert into units(name, state) select 'LT Unit ' || g, 'ACTIVE' " +
+                        "from generate_series(1, ?) g returning id", Long.class, config.units());
+        List<Long> clientIds = jdbc.queryForList(
+                "insert into clients(name, state) select 'LT Client ' || g, 'ACTIVE' " +
+                        "from generate_series(1, ?) g returning id", Long.class, Math.max(1, config.clients()));
+
+        List<Long> receiptIds = jdbc.queryForList(
+                "insert into receipts(number, date) select 'LT-R-' || g, date '2024-01-01' + (g % 365) " +
+                        "from generate_series(1, ?) g returning id", Long.class, config.receipts());
+        List<long[]> allPairs = new ArrayList<>(resourceIds.size() * unitIds.size());
+        for (Long r : resourceIds) {
+            for (Long u : unitIds) allPairs.add(new long[]{r, u});
+        }
+        insertLines("receipt_items", "receipt_id", receiptIds, allPairs, 1_000, 100_000);
+
+        jdbc.update("""
+                insert into stock_movements(doc_type, doc_id, resource_id, unit_id, delta)
+                select 'RECEIPT', ri.receipt_id, ri.resource_id, ri.unit_id, ri.quantity
+                from receipt_items ri
+                join receipts r on r.id = ri.receipt_id
+                where r.number like 'LT-R-%'
+                """);
+        jdbc.update("""
+                insert into balances(resource_id, unit_id, amount)
+                select ri.resource_id, ri.unit_id, sum(ri.quantity)
+                from receipt_items ri
+                join receipts r on r.id = ri.receipt_id
+                where r.number like 'LT-R-%'
+                group by ri.resource_id, ri.unit_id
+                on conflict (resource_id, unit_id) do update set amount = balances.amount + excluded.amount
+                """);
+
+        jdbc.update("""
+                insert into daily_movements(date, resource_id, unit_id, qty_in)
+                select r.date, ri.resource_id, ri.unit_id, sum(ri.quantity)
+                from receipt_items ri
+                join receipts r on r.id = ri.receipt_id
+                where r.number like 'LT-R-%'
+                group by r.date, ri.resource_id, ri.unit_id
+                on conflict (date, resource_id, unit_id) do update set qty_in = daily_movements.qty_in + excluded.qty_in
+                """);
+
+        int shipments = config.concurrency() * config.shipmentsPerWorker();
+        List<Long> shipmentIds = jdbc.queryForList(
+                "insert into shipments(number, client_id, date, state) " +
+                        "select 'LT-S-' || g, (?::bigint[])[1 + g % ?], date '2024-06-01' + (g % 180), 'DRAFT' " +
+                        "from generate_series(1, ?) g returning id",
+                Long.class, clientIds.toArray(Long[]::new), clientIds.size(), shipments);
+        // Shipments only use keys that actually have stock, so sign does not fail on empty balances.
+        List<long[]> stocked = jdbc.query(
+                "select resource_id, unit_id from balances where resource_id = any(?) order by resource_id, unit_id",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                (Object) resourceIds.toArray(Long[]::new));
+        insertLines("shipment_items", "shipment_id", shipmentIds, stocked, 1, 100);
+        // Drafts hold their quantities, as ShipmentService.create would have reserved them.
+        jdbc.update("""
+                update balances b set reserved = b.reserved + d.qty
+                from (select resource_id, unit_id, sum(quantity) as qty
+                      from shipment_items
+                      where shipment_id = any(?)
+                      group by resource_id, unit_id) d
+                where b.resource_id = d.resource_id and b.unit_id = d.unit_id
+                """, (Object) shipmentIds.toArray(Long[]::new));
+
+        List<List<Long>> byWorker = new ArrayList<>();
+        for (int w = 0; w < config.concurrency(); w++) {
+            int from = w * config.shipmentsPerWorker();
+            byWorker.add(List.copyOf(shipmentIds.subList(from, from + config.shipmentsPerWorker())));
+        }
+
+        jdbc.execute("analyze");
+        return new Dataset(resourceIds, unitIds, clientIds, byWorker);
+    }
+
+    /**
+     * Inserts {@code linesPerDocument} lines per document, taking consecutive (resource, unit)
+     * pairs from a random offset so they are distinct, with quantities drawn from [minQty, maxQty).
+     */
+    private void insertLines(String table, String fk, List<Long> docIds, List<long[]> pairs,
+                             long minQty, long maxQty) {
+        int lines = Math.min(config.linesPerDocument(), pairs.size());
+        List<Object[]> batch = new ArrayList<>(docIds.size() * lines);
+
+        for (Long docId : docIds) {
+            int start = random.nextInt(pairs.size());
+            for (int l = 0; l < lines; l++) {
+                long[] p = pairs.get((start + l) % pairs.size());
+                batch.add(new Object[]{docId, p[0], p[1], BigDecimal.valueOf(random.nextLong(minQty, maxQty))});
+            }
+        }
+
+        jdbc.batchUpdate("insert into " + table + "(" + fk + ", resource_id, unit_id, quantity) values (?, ?, ?, ?)", batch);
+    }
+}
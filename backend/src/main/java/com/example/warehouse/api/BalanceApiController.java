@@ -1,10 +1,17 @@
 package com.example.warehouse.api;
 
 import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.dto.StockMovementDto;
 import com.example.warehouse.service.BalanceService;
+import com.example.warehouse.service.BalanceSnapshotService;
+import com.example.warehouse.service.BalanceStreamService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -12,16 +19,56 @@ import java.util.List;
 public class BalanceApiController {
 
     private final BalanceService balanceService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final BalanceStreamService balanceStreamService;
 
-    public BalanceApiController(BalanceService balanceService) {
+    public BalanceApiController(BalanceService balanceService,
+                                BalanceSnapshotService balanceSnapshotService,
+                                BalanceStreamService balanceStreamService) {
         this.balanceService = balanceService;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.balanceStreamService = balanceStreamService;
     }
 
     @GetMapping
     public ResponseEntity<List<BalanceDto>> list(
             @RequestParam(required = false) List<Long> resourceIds,
-            @RequestParam(required = false) List<Long> unitIds
+            @RequestParam(required = false) List<Long> unitIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf
     ) {
+        if (asOf != null) {
+            return ResponseEntity.ok(balanceSnapshotService.searchAsOf(asOf, resourceIds, unitIds));
+        }
         return ResponseEntity.ok(balanceService.searchDto(resourceIds, unitIds));
     }
+
+    @PostMapping("/snapshots")
+    public List<LocalDate> createSnapshots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate upTo
+    ) {
+        return balanceSnapshotService.createCheckpoints(upTo == null ? LocalDate.now().minusDays(1) : upTo);
+    }
+
+    /**
+     * Server-Sent Events: "balance" events carry {resourceId, unitId, amount} after each
+     * committed change; "snapshot" carries the full list. Reconnects resume from Last-Event-ID.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(defaultValue = "true") boolean snapshot
+    ) {
+        return balanceStreamService.subscribe(lastEventId, snapshot);
+    }
+
+    @GetMapping("/movements")
+    public List<StockMovementDto> movements(
+            @RequestParam Long resourceId,
+            @RequestParam Long unitId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return balanceService.getMovements(resourceId, unitId, from, to, limit);
+    }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.example.warehouse.api;
 
+import com.example.warehouse.dto.CursorPage;
 import com.example.warehouse.dto.ReceiptDto;
 import com.example.warehouse.dto.ReceiptListItemDto;
+import com.example.warehouse.service.ReceiptGroupCommitter;
 import com.example.warehouse.service.ReceiptService;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -14,21 +17,39 @@ import java.util.List;
 @RequestMapping("/api/receipts")
 public class ReceiptApiController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ReceiptService receiptService;
+    private final ReceiptGroupCommitter receiptGroupCommitter;
 
-    public ReceiptApiController(ReceiptService receiptService) {
+    public ReceiptApiController(ReceiptService receiptService,
+                                ReceiptGroupCommitter receiptGroupCommitter) {
         this.receiptService = receiptService;
+        this.receiptGroupCommitter = receiptGroupCommitter;
+    }
+
+    @GetMapping("/numbers")
+    public List<String> numbers(@RequestParam(required = false) String prefix,
+                                @RequestParam(required = false) Integer limit) {
+        return receiptService.findNumbers(prefix, limit);
     }
 
     @GetMapping
-    public List<ReceiptListItemDto> list(
+    public ResponseEntity<List<ReceiptListItemDto>> list(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(required = false) List<String> numbers,
             @RequestParam(required = false) List<Long> resourceIds,
-            @RequestParam(required = false) List<Long> unitIds
+            @RequestParam(required = false) List<Long> unitIds,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
-        return receiptService.searchListDto(from, to, numbers, resourceIds, unitIds);
+        CursorPage<ReceiptListItemDto> page =
+                receiptService.searchPage(from, to, numbers, resourceIds, unitIds, cursor, limit);
+
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.nextCursor() != null) ok.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        return ok.body(page.items());
     }
 
     @GetMapping("/{id}")
@@ -38,12 +59,14 @@ public class ReceiptApiController {
 
     @PostMapping
     public ReceiptDto create(@Valid @RequestBody ReceiptDto dto) {
-        return receiptService.create(dto);
+        return receiptGroupCommitter.create(dto);
     }
 
     @PutMapping("/{id}")
     public ReceiptDto update(@PathVariable Long id, @Valid @RequestBody ReceiptDto dto) {
-        return receiptService.updateAndReturn(id, dto);
+        // Read back after the commit, which is when the version is bumped.
+        receiptService.update(id, dto);
+        return receiptService.getById(id);
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,77 @@
+package com.example.warehouse.api;
+
+import com.example.warehouse.service.DailyMovementService;
+import com.example.warehouse.service.ReportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reports")
+public class ReportApiController {
+
+    private final ReportService reportService;
+    private final DailyMovementService dailyMovementService;
+    private final ObjectMapper objectMapper;
+
+    public ReportApiController(ReportService reportService,
+                               DailyMovementService dailyMovementService,
+                               ObjectMapper objectMapper) {
+        this.reportService = reportService;
+        this.dailyMovementService = dailyMovementService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Turnover per (resource, unit), written as a JSON array row by row.
+     */
+    @GetMapping("/turnover")
+    public ResponseEntity<StreamingResponseBody> turnover(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<Long> resourceIds,
+            @RequestParam(required = false) List<Long> unitIds
+    ) {
+        // Fail before the response is committed; once streaming starts the status is already 200.
+        reportService.validateRange(from, to);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.writeStartArray();
+                reportService.streamTurnover(from, to, resourceIds, unitIds, row -> {
+                    try {
+                        gen.writeObject(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                gen.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Recomputes the daily_movements rollup for [from, to] from the documents (backfill / repair).
+     */
+    @PostMapping("/daily-movements/rebuild")
+    public Map<String, Integer> rebuildDailyMovements(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return Map.of("rows", dailyMovementService.rebuild(from, to));
+    }
+}
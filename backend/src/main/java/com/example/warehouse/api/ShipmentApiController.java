@@ -1,33 +1,45 @@
 package com.example.warehouse.api;
 
+import com.example.warehouse.dto.CursorPage;
+import com.example.warehouse.dto.ShipmentActionResultDto;
 import com.example.warehouse.dto.ShipmentDto;
-import com.example.warehouse.entity.Shipment;
+import com.example.warehouse.dto.ShipmentListItemDto;
+import com.example.warehouse.dto.SignJobDto;
 import com.example.warehouse.entity.ShipmentState;
 import com.example.warehouse.service.ShipmentService;
+import com.example.warehouse.service.ShipmentSignQueue;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/shipments")
 public class ShipmentApiController {
 
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String TOTAL_ESTIMATED_HEADER = "X-Total-Count-Estimated";
+
     private final ShipmentService shipmentService;
+    private final ShipmentSignQueue shipmentSignQueue;
 
-    public ShipmentApiController(ShipmentService shipmentService) {
+    public ShipmentApiController(ShipmentService shipmentService,
+                                 ShipmentSignQueue shipmentSignQueue) {
         this.shipmentService = shipmentService;
+        this.shipmentSignQueue = shipmentSignQueue;
     }
 
     @GetMapping("/numbers")
-    public List<String> numbers() {
-        return shipmentService.getAllNumbers();
+    public List<String> numbers(@RequestParam(required = false) String prefix,
+                                @RequestParam(required = false) Integer limit) {
+        return shipmentService.findNumbers(prefix, limit);
     }
 
     @GetMapping
-    public List<ShipmentDto> list(
+    public ResponseEntity<List<ShipmentListItemDto>> list(
             @RequestParam(required = false, name = "dateFrom")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             LocalDate from,
@@ -40,15 +52,21 @@ public class ShipmentApiController {
             @RequestParam(required = false) List<Long> resourceIds,
             @RequestParam(required = false) List<Long> unitIds,
             @RequestParam(required = false) Long clientId,
-            @RequestParam(required = false) ShipmentState state
+            @RequestParam(required = false) ShipmentState state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean withTotal
     ) {
-        List<Shipment> found = shipmentService.search(from, to, numbers, resourceIds, unitIds, clientId, state);
-
-        List<ShipmentDto> result = new ArrayList<>();
-        for (Shipment s : found) {
-            result.add(shipmentService.getById(s.getId()));
+        CursorPage<ShipmentListItemDto> page = shipmentService.searchPage(
+                from, to, numbers, resourceIds, unitIds, clientId, state, cursor, limit, withTotal);
+
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.nextCursor() != null) ok.header(ReceiptApiController.NEXT_CURSOR_HEADER, page.nextCursor());
+        if (page.total() != null) {
+            ok.header(TOTAL_COUNT_HEADER, String.valueOf(page.total()));
+            ok.header(TOTAL_ESTIMATED_HEADER, String.valueOf(page.totalEstimated()));
         }
-        return result;
+        return ok.body(page.items());
     }
 
     @GetMapping("/{id}")
@@ -66,9 +84,35 @@ public class ShipmentApiController {
         shipmentService.update(id, dto);
     }
 
+    /**
+     * Signs synchronously, or with async signing enabled queues the sign and answers
+     * 202 with the job to poll.
+     */
     @PostMapping("/{id}/sign")
-    public void sign(@PathVariable Long id) {
-        shipmentService.sign(id);
+    public ResponseEntity<SignJobDto> sign(@PathVariable Long id) {
+        if (!shipmentSignQueue.isEnabled()) {
+            shipmentService.sign(id);
+            return ResponseEntity.ok().build();
+        }
+        SignJobDto job = shipmentSignQueue.submit(id);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/shipments/sign-jobs/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/sign-jobs/{jobId}")
+    public SignJobDto signJob(@PathVariable String jobId) {
+        return shipmentSignQueue.get(jobId);
+    }
+
+    @PostMapping("/sign")
+    public List<ShipmentActionResultDto> signAll(@RequestBody List<Long> ids) {
+        return shipmentService.signAll(ids);
+    }
+
+    @PostMapping("/revoke")
+    public List<ShipmentActionResultDto> revokeAll(@RequestBody List<Long> ids) {
+        return shipmentService.revokeAll(ids);
     }
 
     @PostMapping("/{id}/revoke")
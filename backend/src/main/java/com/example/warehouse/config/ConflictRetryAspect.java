@@ -0,0 +1,71 @@
+package com.example.warehouse.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded retry for {@link RetryOnConflict} methods. Ordered before the transaction
+ * interceptor, so every attempt runs in a fresh transaction and re-reads what the
+ * winner committed. Waits use full jitter: a random delay up to
+ * {@code base-delay-ms * 2^(attempt-1)}, capped at {@code max-delay-ms}.
+ * <p>
+ * Every conflict is counted in {@code warehouse.concurrency.conflicts}, tagged with the
+ * method and whether it was {@code retried} or {@code exhausted}; an exhausted conflict
+ * is rethrown and answered with 409.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect {
+
+    static final String CONFLICTS_METRIC = "warehouse.concurrency.conflicts";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public ConflictRetryAspect(MeterRegistry meterRegistry,
+                               @Value("${concurrency.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${concurrency.retry.base-delay-ms:20}") long baseDelayMs,
+                               @Value("${concurrency.retry.max-delay-ms:200}") long maxDelayMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+    }
+
+    @Around("@annotation(com.example.warehouse.config.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint pjp) throws Throwable {
+        // Inside a caller's transaction a retry would reuse the failed one; leave it to the caller.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) return pjp.proceed();
+
+        String method = pjp.getSignature().getDeclaringType().getSimpleName() + "." + pjp.getSignature().getName();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return pjp.proceed();
+            } catch (ConcurrencyFailureException e) {
+                boolean exhausted = attempt >= maxAttempts;
+                meterRegistry.counter(CONFLICTS_METRIC,
+                        "method", method, "outcome", exhausted ? "exhausted" : "retried").increment();
+                if (exhausted) throw e;
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) throws InterruptedException {
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+}
@@ -19,6 +19,7 @@ public class CorsConfig {
         config.setAllowedOrigins(List.of("http://localhost:5173"));
         config.setAllowedMethods(List.of("*"));
         config.setAllowedHeaders(List.of("*"));
+        config.setExposedHeaders(List.of("X-Next-Cursor", "X-Total-Count", "X-Total-Count-Estimated"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source =
@@ -0,0 +1,14 @@
+package com.example.warehouse.config;
+
+import java.lang.annotation.*;
+
+/**
+ * Re-runs a transactional service method when it loses a concurrent update
+ * (optimistic version check, deadlock or lock timeout), see {@link ConflictRetryAspect}.
+ * Only the outermost call retries; inside an existing transaction it has no effect.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+}
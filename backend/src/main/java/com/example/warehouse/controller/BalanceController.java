@@ -30,7 +30,7 @@ public class BalanceController {
                        @RequestParam(required = false) List<Long> unitIds,
                        Model model) {
 
-        model.addAttribute("balances", balanceService.search(resourceIds, unitIds));
+        model.addAttribute("balances", balanceService.searchDto(resourceIds, unitIds));
 
         model.addAttribute("resources", resourceService.getAllActive());
         model.addAttribute("units", unitService.getAllActive());
@@ -1,6 +1,8 @@
 package com.example.warehouse.controller;
 
+import com.example.warehouse.dto.CursorPage;
 import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.ReceiptListItemDto;
 import com.example.warehouse.service.ReceiptService;
 import com.example.warehouse.service.ResourceService;
 import com.example.warehouse.service.UnitService;
@@ -35,11 +37,15 @@ public class ReceiptController {
                        @RequestParam(required = false) List<String> numbers,
                        @RequestParam(required = false) List<Long> resourceIds,
                        @RequestParam(required = false) List<Long> unitIds,
+                       @RequestParam(required = false) String cursor,
                        Model model) {
 
-        model.addAttribute("receipts", receiptService.search(from, to, numbers, resourceIds, unitIds));
+        CursorPage<ReceiptListItemDto> page =
+                receiptService.searchPage(from, to, numbers, resourceIds, unitIds, cursor, null);
+        model.addAttribute("receipts", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
 
-        model.addAttribute("allReceiptNumbers", receiptService.getAllNumbers());
+        model.addAttribute("allReceiptNumbers", receiptService.findNumbers(null, null));
         model.addAttribute("resources", resourceService.getAllActive());
         model.addAttribute("units", unitService.getAllActive());
 
@@ -1,6 +1,8 @@
 package com.example.warehouse.controller;
 
+import com.example.warehouse.dto.CursorPage;
 import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.dto.ShipmentListItemDto;
 import com.example.warehouse.entity.ShipmentState;
 import com.example.warehouse.service.ClientService;
 import com.example.warehouse.service.ResourceService;
@@ -42,13 +44,16 @@ public class ShipmentController {
                        @RequestParam(required = false) List<Long> unitIds,
                        @RequestParam(required = false) Long clientId,
                        @RequestParam(required = false) ShipmentState state,
+                       @RequestParam(required = false) String cursor,
                        Model model) {
 
-        model.addAttribute("shipments",
-                shipmentService.search(from, to, numbers, resourceIds, unitIds, clientId, state)
-        );
+        CursorPage<ShipmentListItemDto> page = shipmentService.searchPage(
+                from, to, numbers, resourceIds, unitIds, clientId, state, cursor, null, true);
+        model.addAttribute("shipments", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("total", page.total());
 
-        model.addAttribute("allShipmentNumbers", shipmentService.getAllNumbers());
+        model.addAttribute("allShipmentNumbers", shipmentService.findNumbers(null, null));
         model.addAttribute("resources", resourceService.getAllActive());
         model.addAttribute("units", unitService.getAllActive());
         model.addAttribute("clients", clientService.getAllActive());
@@ -0,0 +1,12 @@
+package com.example.warehouse.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Current level of one balance. {@code version} is the base row version: it grows with
+ * every write of the row (shard increments leave it unchanged), so a change with a
+ * lower version than one already seen for the key is stale.
+ */
+public record BalanceChangeDto(Long resourceId, Long unitId, long version, BigDecimal amount,
+                               BigDecimal reserved, BigDecimal available) {
+}
@@ -9,9 +9,28 @@ public class BalanceDto {
     private Long unitId;
     private String unitName;
     private BigDecimal amount;
+    private BigDecimal reserved;
+    private BigDecimal available;
 
     public BalanceDto() {}
 
+    public BalanceDto(Long id, Long resourceId, String resourceName,
+                      Long unitId, String unitName, BigDecimal amount) {
+        this.id = id;
+        this.resourceId = resourceId;
+        this.resourceName = resourceName;
+        this.unitId = unitId;
+        this.unitName = unitName;
+        this.amount = amount;
+    }
+
+    public BalanceDto(Long id, Long resourceId, String resourceName,
+                      Long unitId, String unitName, BigDecimal amount, BigDecimal reserved) {
+        this(id, resourceId, resourceName, unitId, unitName, amount);
+        this.reserved = reserved;
+        this.available = (amount == null || reserved == null) ? null : amount.subtract(reserved);
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -29,4 +48,10 @@ public class BalanceDto {
 
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public BigDecimal getReserved() { return reserved; }
+    public void setReserved(BigDecimal reserved) { this.reserved = reserved; }
+
+    public BigDecimal getAvailable() { return available; }
+    public void setAvailable(BigDecimal available) { this.available = available; }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.warehouse.dto;
+
+import java.util.Comparator;
+
+public record BalanceKey(Long resourceId, Long unitId) implements Comparable<BalanceKey> {
+
+    private static final Comparator<BalanceKey> ORDER = Comparator
+            .comparing(BalanceKey::resourceId)
+            .thenComparing(BalanceKey::unitId);
+
+    @Override
+    public int compareTo(BalanceKey o) {
+        return ORDER.compare(this, o);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.warehouse.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list. {@code nextCursor} is null on the last page,
+ * {@code total} is null unless the caller asked for it.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, Long total, boolean totalEstimated) {
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this(items, nextCursor, null, false);
+    }
+}
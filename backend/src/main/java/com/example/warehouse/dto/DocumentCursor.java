@@ -0,0 +1,32 @@
+package com.example.warehouse.dto;
+
+import com.example.warehouse.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keyset position in a document list ordered by (date desc, id desc).
+ * Encoded as {@code yyyy-MM-dd_id}.
+ */
+public record DocumentCursor(LocalDate date, Long id) {
+
+    public static DocumentCursor parse(String value) {
+        if (value == null || value.isBlank()) return null;
+
+        int sep = value.lastIndexOf('_');
+        if (sep <= 0) throw new BusinessException("Invalid cursor");
+        try {
+            return new DocumentCursor(
+                    LocalDate.parse(value.substring(0, sep)),
+                    Long.parseLong(value.substring(sep + 1))
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        return date + "_" + id;
+    }
+}
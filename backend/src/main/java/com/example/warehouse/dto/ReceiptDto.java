@@ -14,6 +14,9 @@ import java.util.List;
 public class ReceiptDto {
     private Long id;
 
+    // The version the client read; an update with an older one is answered with 409.
+    private Long version;
+
     @NotBlank(message = "Number is required")
     @Size(max = 50, message = "Number must be <= 50 chars")
     private String number;
@@ -0,0 +1,10 @@
+package com.example.warehouse.dto;
+
+import com.example.warehouse.entity.EntityState;
+
+/**
+ * Detached copy of a resource, unit or client as kept by the reference cache. Safe to
+ * share between threads; attach it to a document with {@code EntityManager.getReference}.
+ */
+public record ReferenceDto(Long id, String name, EntityState state) {
+}
@@ -0,0 +1,15 @@
+package com.example.warehouse.dto;
+
+/**
+ * Outcome of a bulk sign / revoke for one shipment. {@code message} is set for
+ * {@link Status#FAILED} and {@link Status#NOT_FOUND}.
+ */
+public record ShipmentActionResultDto(Long id, Status status, String message) {
+
+    public enum Status {
+        DONE,
+        UNCHANGED,
+        NOT_FOUND,
+        FAILED
+    }
+}
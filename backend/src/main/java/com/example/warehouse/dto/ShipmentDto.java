@@ -13,6 +13,9 @@ import java.util.List;
 public class ShipmentDto {
     private Long id;
 
+    // The version the client read; an update with an older one is answered with 409.
+    private Long version;
+
     @NotBlank(message = "Number is required")
     @Size(max = 50, message = "Number must be <= 50 chars")
     private String number;
@@ -33,6 +36,9 @@ public class ShipmentDto {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public String getNumber() { return number; }
     public void setNumber(String number) { this.number = number; }
 
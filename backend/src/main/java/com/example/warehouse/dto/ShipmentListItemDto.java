@@ -10,6 +10,7 @@ import java.time.LocalDate;
 @Data
 public class ShipmentListItemDto {
     private Long id;
+    private Long version;
     private String number;
     private LocalDate date;
     private Long clientId;
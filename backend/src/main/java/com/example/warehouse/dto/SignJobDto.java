@@ -0,0 +1,17 @@
+package com.example.warehouse.dto;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous shipment sign. {@code message} explains a FAILED job.
+ */
+public record SignJobDto(String id, Long shipmentId, Status status, String message,
+                         Instant createdAt, Instant finishedAt) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+}
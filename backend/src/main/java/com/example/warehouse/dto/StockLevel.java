@@ -0,0 +1,15 @@
+package com.example.warehouse.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * On-hand and reserved quantity of one balance.
+ */
+public record StockLevel(BigDecimal onHand, BigDecimal reserved) {
+
+    public static final StockLevel ZERO = new StockLevel(BigDecimal.ZERO, BigDecimal.ZERO);
+
+    public BigDecimal available() {
+        return onHand.subtract(reserved);
+    }
+}
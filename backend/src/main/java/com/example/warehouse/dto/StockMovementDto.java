@@ -0,0 +1,15 @@
+package com.example.warehouse.dto;
+
+import com.example.warehouse.entity.DocumentType;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+public record StockMovementDto(Long id,
+                               DocumentType docType,
+                               Long docId,
+                               Long resourceId,
+                               Long unitId,
+                               BigDecimal delta,
+                               OffsetDateTime createdAt) {
+}
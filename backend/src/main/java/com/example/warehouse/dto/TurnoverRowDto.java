@@ -0,0 +1,13 @@
+package com.example.warehouse.dto;
+
+import java.math.BigDecimal;
+
+public record TurnoverRowDto(Long resourceId,
+                             String resourceName,
+                             Long unitId,
+                             String unitName,
+                             BigDecimal opening,
+                             BigDecimal received,
+                             BigDecimal shipped,
+                             BigDecimal closing) {
+}
@@ -18,6 +18,11 @@ public class Balance {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Balances are written through SQL upserts, which bump this column themselves.
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "resource_id", nullable = false)
     private Resource resource;
@@ -29,12 +34,19 @@ public class Balance {
     @Column(name = "amount", nullable = false)
     private BigDecimal amount = BigDecimal.ZERO;
 
+    @Column(name = "reserved", nullable = false)
+    private BigDecimal reserved = BigDecimal.ZERO;
+
     public Balance() {}
 
     public Long getId() {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Resource getResource() {
         return resource;
     }
@@ -58,4 +70,12 @@ public class Balance {
     public void setAmount(BigDecimal amount) {
         this.amount = (amount == null) ? BigDecimal.ZERO : amount;
     }
+
+    public BigDecimal getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(BigDecimal reserved) {
+        this.reserved = (reserved == null) ? BigDecimal.ZERO : reserved;
+    }
 }
\ No newline at end of file
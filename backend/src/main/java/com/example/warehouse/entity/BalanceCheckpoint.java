@@ -0,0 +1,28 @@
+package com.example.warehouse.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Marks a complete balance snapshot for the end of {@code snapshotDate}, by document
+ * date: the opening entries plus every daily movement dated on or before it. A
+ * document write dated on or before {@code snapshotDate} deletes the checkpoint.
+ */
+@Entity
+@Table(name = "balance_checkpoints")
+public class BalanceCheckpoint {
+
+    @Id
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    public BalanceCheckpoint() {}
+
+    public LocalDate getSnapshotDate() { return snapshotDate; }
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+}
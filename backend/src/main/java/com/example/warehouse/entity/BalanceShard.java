@@ -0,0 +1,44 @@
+package com.example.warehouse.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One increment counter of a hot balance. Written through SQL only; mapped so that
+ * JPQL balance queries can add the shard sums to {@link Balance#getAmount()}.
+ */
+@Entity
+@Table(
+        name = "balance_shards",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uq_balance_shard",
+                columnNames = {"resource_id", "unit_id", "shard"}
+        )
+)
+public class BalanceShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "resource_id", nullable = false)
+    private Long resourceId;
+
+    @Column(name = "unit_id", nullable = false)
+    private Long unitId;
+
+    @Column(nullable = false)
+    private Integer shard;
+
+    @Column(nullable = false, precision = 19, scale = 3)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    public BalanceShard() {}
+
+    public Long getId() { return id; }
+    public Long getResourceId() { return resourceId; }
+    public Long getUnitId() { return unitId; }
+    public Integer getShard() { return shard; }
+    public BigDecimal getAmount() { return amount; }
+}
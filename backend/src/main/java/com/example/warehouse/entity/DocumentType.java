@@ -0,0 +1,7 @@
+package com.example.warehouse.entity;
+
+public enum DocumentType {
+    OPENING,
+    RECEIPT,
+    SHIPMENT
+}
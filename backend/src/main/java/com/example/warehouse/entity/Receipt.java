@@ -16,9 +16,14 @@ import java.util.List;
 public class Receipt {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receipts_seq")
+    @SequenceGenerator(name = "receipts_seq", sequenceName = "receipts_id_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(nullable = false, length = 50)
     private String number;
 
@@ -12,7 +12,8 @@ import java.math.BigDecimal;
 public class ReceiptItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receipt_items_seq")
+    @SequenceGenerator(name = "receipt_items_seq", sequenceName = "receipt_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -14,9 +14,14 @@ import java.util.List;
 public class Shipment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipments_seq")
+    @SequenceGenerator(name = "shipments_seq", sequenceName = "shipments_id_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(nullable = false, length = 50)
     private String number;
 
@@ -38,6 +43,8 @@ public class Shipment {
 
     public Long getId() { return id; }
 
+    public Long getVersion() { return version; }
+
     public String getNumber() { return number; }
     public void setNumber(String number) { this.number = number; }
 
@@ -9,7 +9,8 @@ import java.math.BigDecimal;
 public class ShipmentItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipment_items_seq")
+    @SequenceGenerator(name = "shipment_items_seq", sequenceName = "shipment_items_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
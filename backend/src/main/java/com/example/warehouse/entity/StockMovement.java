@@ -0,0 +1,50 @@
+package com.example.warehouse.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * One signed change of a balance, written together with the balance update.
+ * Rows are never updated or deleted; {@code balances} is the running sum.
+ */
+@Entity
+@Immutable
+@Table(name = "stock_movements")
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "doc_type", nullable = false, length = 20)
+    private DocumentType docType;
+
+    @Column(name = "doc_id")
+    private Long docId;
+
+    @Column(name = "resource_id", nullable = false)
+    private Long resourceId;
+
+    @Column(name = "unit_id", nullable = false)
+    private Long unitId;
+
+    @Column(nullable = false, precision = 19, scale = 3)
+    private BigDecimal delta;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    public StockMovement() {}
+
+    public Long getId() { return id; }
+    public DocumentType getDocType() { return docType; }
+    public Long getDocId() { return docId; }
+    public Long getResourceId() { return resourceId; }
+    public Long getUnitId() { return unitId; }
+    public BigDecimal getDelta() { return delta; }
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+}
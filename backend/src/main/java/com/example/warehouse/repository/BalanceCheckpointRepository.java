@@ -0,0 +1,17 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.entity.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, LocalDate>,
+        BalanceCheckpointRepositoryCustom {
+
+    Optional<BalanceCheckpoint> findTopBySnapshotDateLessThanEqualOrderBySnapshotDateDesc(LocalDate date);
+
+    Optional<BalanceCheckpoint> findTopBySnapshotDateGreaterThanOrderBySnapshotDateAsc(LocalDate date);
+
+    Optional<BalanceCheckpoint> findTopByOrderBySnapshotDateDesc();
+}
@@ -0,0 +1,39 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.BalanceDto;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface BalanceCheckpointRepositoryCustom {
+
+    /**
+     * Writes the checkpoint row and its snapshot for {@code date}: the base snapshot
+     * plus the daily movements dated after {@code baseDate} up to {@code date}. Without
+     * a base it starts from the opening entries. Returns false when the checkpoint
+     * already exists.
+     */
+    boolean createSnapshot(LocalDate date, LocalDate baseDate);
+
+    /**
+     * Balances reconstructed from one snapshot plus {@code sign} × the daily movements
+     * dated in ({@code after}, {@code upTo}]. A null base starts from the opening
+     * entries, a null {@code after} from the first day. Empty id collections mean
+     * "no filter".
+     */
+    List<BalanceDto> findFromSnapshot(LocalDate baseDate, int sign,
+                                      LocalDate after, LocalDate upTo,
+                                      Collection<Long> resourceIds, Collection<Long> unitIds);
+
+    /**
+     * Drops the checkpoints dated on or after {@code date} (all of them when null);
+     * they no longer match the documents.
+     */
+    int invalidateFrom(LocalDate date);
+
+    /**
+     * Drops daily checkpoints older than {@code before}, keeping month-end ones.
+     */
+    int pruneDaily(LocalDate before);
+}
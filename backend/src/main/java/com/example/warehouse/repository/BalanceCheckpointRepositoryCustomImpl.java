@@ -0,0 +1,152 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.BalanceDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public class BalanceCheckpointRepositoryCustomImpl implements BalanceCheckpointRepositoryCustom {
+
+    private static final String CHECKPOINT_SQL = """
+            insert into balance_checkpoints (snapshot_date)
+            values (?)
+            on conflict (snapshot_date) do nothing
+            """;
+
+    // Amounts by document date, as in the turnover report: the opening entries of the
+    // ledger (balances that predate the documents) plus the daily_movements rollup.
+    private static final String SNAPSHOT_SQL = """
+            insert into balance_snapshots (snapshot_date, resource_id, unit_id, amount)
+            select ?, k.resource_id, k.unit_id, sum(k.amount)
+            from (
+                select s.resource_id, s.unit_id, s.amount
+                from balance_snapshots s
+                where s.snapshot_date = ?
+                union all
+                select m.resource_id, m.unit_id, m.delta
+                from stock_movements m
+                where m.doc_type = 'OPENING' and cast(? as date) is null
+                union all
+                select d.resource_id, d.unit_id, d.qty_in - d.qty_out
+                from daily_movements d
+                where d.date > coalesce(cast(? as date), date '-infinity') and d.date <= ?
+            ) k
+            group by k.resource_id, k.unit_id
+            """;
+
+    private static final String KEY_FILTER = """
+            and (cardinality(?::bigint[]) = 0 or %1$s.resource_id = any(?::bigint[]))
+            and (cardinality(?::bigint[]) = 0 or %1$s.unit_id = any(?::bigint[]))
+            """;
+
+    private static final String AS_OF_SQL = """
+            select r.id, r.name, u.id, u.name, sum(k.amount)
+            from (
+                select s.resource_id, s.unit_id, s.amount
+                from balance_snapshots s
+                where s.snapshot_date = ?
+            """ + KEY_FILTER.formatted("s") + """
+                union all
+                select m.resource_id, m.unit_id, m.delta
+                from stock_movements m
+                where m.doc_type = 'OPENING' and cast(? as date) is null
+            """ + KEY_FILTER.formatted("m") + """
+                union all
+                select d.resource_id, d.unit_id, ? * (d.qty_in - d.qty_out)
+                from daily_movements d
+                where d.date > coalesce(cast(? as date), date '-infinity') and d.date <= ?
+            """ + KEY_FILTER.formatted("d") + """
+            ) k
+            join resources r on r.id = k.resource_id
+            join units u on u.id = k.unit_id
+            group by r.id, r.name, u.id, u.name
+            order by r.name, u.name
+            """;
+
+    private static final String INVALIDATE_SQL = """
+            delete from balance_checkpoints
+            where snapshot_date >= coalesce(cast(? as date), date '-infinity')
+            """;
+
+    private static final String PRUNE_SQL = """
+            delete from balance_checkpoints
+            where snapshot_date < ?
+              and snapshot_date <> (date_trunc('month', snapshot_date) + interval '1 month - 1 day')::date
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceCheckpointRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean createSnapshot(LocalDate date, LocalDate baseDate) {
+        int inserted = jdbcTemplate.update(CHECKPOINT_SQL, ps -> ps.setObject(1, date));
+        if (inserted == 0) return false;
+
+        jdbcTemplate.update(SNAPSHOT_SQL, ps -> {
+            ps.setObject(1, date);
+            setDate(ps, 2, baseDate);
+            setDate(ps, 3, baseDate);
+            setDate(ps, 4, baseDate);
+            ps.setObject(5, date);
+        });
+        return true;
+    }
+
+    @Override
+    public List<BalanceDto> findFromSnapshot(LocalDate baseDate, int sign,
+                                             LocalDate after, LocalDate upTo,
+                                             Collection<Long> resourceIds, Collection<Long> unitIds) {
+        Long[] res = resourceIds.toArray(Long[]::new);
+        Long[] units = unitIds.toArray(Long[]::new);
+
+        return jdbcTemplate.query(AS_OF_SQL, ps -> {
+            Connection c = ps.getConnection();
+            int i = 1;
+            setDate(ps, i++, baseDate);
+            i = setKeyFilter(ps, c, i, res, units);
+            setDate(ps, i++, baseDate);
+            i = setKeyFilter(ps, c, i, res, units);
+            ps.setInt(i++, sign);
+            setDate(ps, i++, after);
+            ps.setObject(i++, upTo);
+            setKeyFilter(ps, c, i, res, units);
+        }, (rs, n) -> new BalanceDto(null,
+                rs.getLong(1), rs.getString(2),
+                rs.getLong(3), rs.getString(4),
+                rs.getBigDecimal(5)));
+    }
+
+    @Override
+    public int invalidateFrom(LocalDate date) {
+        return jdbcTemplate.update(INVALIDATE_SQL, ps -> setDate(ps, 1, date));
+    }
+
+    @Override
+    public int pruneDaily(LocalDate before) {
+        return jdbcTemplate.update(PRUNE_SQL, ps -> ps.setObject(1, before));
+    }
+
+    private static int setKeyFilter(PreparedStatement ps, Connection c, int i,
+                                    Long[] resourceIds, Long[] unitIds) throws SQLException {
+        ps.setArray(i++, c.createArrayOf("bigint", resourceIds));
+        ps.setArray(i++, c.createArrayOf("bigint", resourceIds));
+        ps.setArray(i++, c.createArrayOf("bigint", unitIds));
+        ps.setArray(i++, c.createArrayOf("bigint", unitIds));
+        return i;
+    }
+
+    private static void setDate(PreparedStatement ps, int i, LocalDate date) throws SQLException {
+        if (date == null) ps.setNull(i, Types.DATE);
+        else ps.setDate(i, Date.valueOf(date));
+    }
+}
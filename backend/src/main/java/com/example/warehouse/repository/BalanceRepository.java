@@ -1,10 +1,53 @@
 package com.example.warehouse.repository;
 
+import com.example.warehouse.dto.BalanceDto;
 import com.example.warehouse.entity.Balance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface BalanceRepository extends JpaRepository<Balance, Long> {
+public interface BalanceRepository extends JpaRepository<Balance, Long>, BalanceRepositoryCustom {
+
+    // Base amount plus the increment shards of hot keys.
+    String TOTAL_AMOUNT = """
+            b.amount + coalesce((select sum(s.amount) from BalanceShard s
+                                 where s.resourceId = b.resource.id and s.unitId = b.unit.id), 0)""";
+
     Optional<Balance> findByResourceIdAndUnitId(Long resourceId, Long unitId);
-}
\ No newline at end of file
+
+    @Query("select " + TOTAL_AMOUNT + " from Balance b where b.resource.id = :resourceId and b.unit.id = :unitId")
+    Optional<BigDecimal> findAmount(@Param("resourceId") Long resourceId, @Param("unitId") Long unitId);
+
+    @Query("select new com.example.warehouse.dto.BalanceDto(b.id, r.id, r.name, u.id, u.name, " + TOTAL_AMOUNT + ", b.reserved)" + """
+            from Balance b join b.resource r join b.unit u
+            order by r.name, u.name
+            """)
+    List<BalanceDto> findAllDto();
+
+    @Query("select new com.example.warehouse.dto.BalanceDto(b.id, r.id, r.name, u.id, u.name, " + TOTAL_AMOUNT + ", b.reserved)" + """
+            from Balance b join b.resource r join b.unit u
+            where r.id in :resourceIds
+            order by r.name, u.name
+            """)
+    List<BalanceDto> findDtoByResourceIds(@Param("resourceIds") Collection<Long> resourceIds);
+
+    @Query("select new com.example.warehouse.dto.BalanceDto(b.id, r.id, r.name, u.id, u.name, " + TOTAL_AMOUNT + ", b.reserved)" + """
+            from Balance b join b.resource r join b.unit u
+            where u.id in :unitIds
+            order by r.name, u.name
+            """)
+    List<BalanceDto> findDtoByUnitIds(@Param("unitIds") Collection<Long> unitIds);
+
+    @Query("select new com.example.warehouse.dto.BalanceDto(b.id, r.id, r.name, u.id, u.name, " + TOTAL_AMOUNT + ", b.reserved)" + """
+            from Balance b join b.resource r join b.unit u
+            where r.id in :resourceIds and u.id in :unitIds
+            order by r.name, u.name
+            """)
+    List<BalanceDto> findDtoByResourceIdsAndUnitIds(@Param("resourceIds") Collection<Long> resourceIds,
+                                                    @Param("unitIds") Collection<Long> unitIds);
+}
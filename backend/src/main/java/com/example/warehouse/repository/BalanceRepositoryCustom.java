@@ -0,0 +1,54 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.BalanceChangeDto;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.StockLevel;
+import com.example.warehouse.entity.DocumentType;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface BalanceRepositoryCustom {
+
+    /**
+     * Current levels (amount including shards, and reserved) for the given keys, read
+     * through the (resource_id, unit_id) unique index in one statement. Keys without a
+     * row are absent from the result.
+     */
+    Map<BalanceKey, StockLevel> findLevels(Collection<BalanceKey> keys);
+
+    /**
+     * {@link #findLevels} with the base row version, as change messages. Keys without a
+     * row are absent from the result.
+     */
+    Map<BalanceKey, BalanceChangeDto> findChanges(Collection<BalanceKey> keys);
+
+    /**
+     * Locks the existing base balance rows for the given keys in (resource, unit) order
+     * and returns their current levels. Keys without a row are absent from the result.
+     */
+    Map<BalanceKey, StockLevel> lockLevels(Collection<BalanceKey> keys);
+
+    /**
+     * Appends one stock movement per (document, key) delta and adds the merged delta
+     * of every key to its balance in the same statement, creating missing rows.
+     * {@code reserved} changes the reserved quantity of each key without a movement.
+     * Keys mapped in {@code shards} are added to that increment shard instead of the
+     * base row.
+     */
+    void applyDeltas(DocumentType docType, Map<Long, ? extends Map<BalanceKey, BigDecimal>> deltasByDoc,
+                     Map<BalanceKey, BigDecimal> reserved, Map<BalanceKey, Integer> shards);
+
+    /**
+     * Keys that have a non-zero shard, in (resource, unit) order.
+     */
+    List<BalanceKey> findShardedKeys(int limit);
+
+    /**
+     * Moves the shard amounts of the given keys into their base rows. The caller must
+     * hold the base row locks (see {@link #lockLevels}). Returns the folded key count.
+     */
+    int foldShards(Collection<BalanceKey> keys);
+}
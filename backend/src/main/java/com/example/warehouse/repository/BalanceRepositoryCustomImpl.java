@@ -0,0 +1,264 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.BalanceChangeDto;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.StockLevel;
+import com.example.warehouse.entity.DocumentType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.*;
+
+public class BalanceRepositoryCustomImpl implements BalanceRepositoryCustom {
+
+    // Base amount plus the increment shards of hot keys, and the reserved quantity.
+    private static final String LEVELS_SQL = """
+            select b.resource_id, b.unit_id,
+                   b.amount + coalesce((select sum(s.amount) from balance_shards s
+                                        where s.resource_id = b.resource_id and s.unit_id = b.unit_id), 0),
+                   b.reserved
+            from balances b
+            join unnest(?::bigint[], ?::bigint[]) as k(resource_id, unit_id)
+              on b.resource_id = k.resource_id and b.unit_id = k.unit_id
+            """;
+
+    // LEVELS_SQL plus the base row version; shard increments do not change it.
+    private static final String CHANGES_SQL = """
+            select b.resource_id, b.unit_id, b.version,
+                   b.amount + coalesce((select sum(s.amount) from balance_shards s
+                                        where s.resource_id = b.resource_id and s.unit_id = b.unit_id), 0),
+                   b.reserved
+            from balances b
+            join unnest(?::bigint[], ?::bigint[]) as k(resource_id, unit_id)
+              on b.resource_id = k.resource_id and b.unit_id = k.unit_id
+            """;
+
+    private static final String LOCK_SQL = """
+            select b.resource_id, b.unit_id
+            from balances b
+            join unnest(?::bigint[], ?::bigint[]) as k(resource_id, unit_id)
+              on b.resource_id = k.resource_id and b.unit_id = k.unit_id
+            order by b.resource_id, b.unit_id
+            for update of b
+            """;
+
+    // The movement rows and the balance upserts go in one statement, so the
+    // balances can never drift from the ledger. Input rows may come from several
+    // documents; balances get one merged change per key. Reservation-only rows
+    // (delta 0) write no movement. Deltas with a shard go to that shard row and only
+    // make sure the base row exists, which takes no lock on it. Existing base rows are
+    // updated rather than upserted: PostgreSQL checks the proposed row of an upsert
+    // against chk_balance_non_negative before it finds the conflict, so a decrement
+    // would be rejected as a negative insert.
+    private static final String APPLY_SQL = """
+            with input as (
+                select * from unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::numeric[], ?::numeric[], ?::int[])
+                    as k(doc_id, resource_id, unit_id, delta, reserved, shard)
+            ),
+            moved as (
+                insert into stock_movements (doc_type, doc_id, resource_id, unit_id, delta)
+                select ?, i.doc_id, i.resource_id, i.unit_id, i.delta
+                from input i
+                where i.delta <> 0
+            ),
+            totals as (
+                select i.resource_id, i.unit_id, i.shard, sum(i.delta) as delta, sum(i.reserved) as reserved
+                from input i
+                group by i.resource_id, i.unit_id, i.shard
+            ),
+            ensured as (
+                insert into balances (resource_id, unit_id, amount)
+                select t.resource_id, t.unit_id, 0
+                from totals t
+                where t.shard is not null
+                order by t.resource_id, t.unit_id
+                on conflict (resource_id, unit_id) do nothing
+            ),
+            sharded as (
+                insert into balance_shards (resource_id, unit_id, shard, amount)
+                select t.resource_id, t.unit_id, t.shard, t.delta
+                from totals t
+                where t.shard is not null
+                order by t.resource_id, t.unit_id
+                on conflict (resource_id, unit_id, shard)
+                do update set amount = balance_shards.amount + excluded.amount
+            ),
+            updated as (
+                update balances b
+                set amount = b.amount + t.delta,
+                    reserved = b.reserved + t.reserved,
+                    version = b.version + 1
+                from totals t
+                where t.shard is null
+                  and b.resource_id = t.resource_id and b.unit_id = t.unit_id
+                returning b.resource_id, b.unit_id
+            )
+            insert into balances (resource_id, unit_id, amount, reserved)
+            select t.resource_id, t.unit_id, t.delta, t.reserved
+            from totals t
+            where t.shard is null
+              and not exists (select 1 from updated u
+                              where u.resource_id = t.resource_id and u.unit_id = t.unit_id)
+            order by t.resource_id, t.unit_id
+            on conflict (resource_id, unit_id)
+            do update set amount = balances.amount + excluded.amount,
+                          reserved = balances.reserved + excluded.reserved,
+                          version = balances.version + 1
+            """;
+
+    private static final String SHARDED_KEYS_SQL = """
+            select distinct resource_id, unit_id
+            from balance_shards
+            where amount <> 0
+            order by resource_id, unit_id
+            limit ?
+            """;
+
+    // Shard rows are locked after the base rows, like every other writer does, and
+    // cleared by the amount read under that lock so concurrent increments are kept.
+    private static final String FOLD_SQL = """
+            with locked as (
+                select s.id, s.resource_id, s.unit_id, s.amount
+                from balance_shards s
+                join unnest(?::bigint[], ?::bigint[]) as k(resource_id, unit_id)
+                  on s.resource_id = k.resource_id and s.unit_id = k.unit_id
+                where s.amount <> 0
+                order by s.resource_id, s.unit_id, s.shard
+                for update of s
+            ),
+            cleared as (
+                update balance_shards s
+                set amount = s.amount - l.amount
+                from locked l
+                where s.id = l.id
+            )
+            update balances b
+            set amount = b.amount + t.total,
+                version = b.version + 1
+            from (select resource_id, unit_id, sum(amount) as total
+                  from locked
+                  group by resource_id, unit_id) t
+            where b.resource_id = t.resource_id and b.unit_id = t.unit_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<BalanceKey, StockLevel> findLevels(Collection<BalanceKey> keys) {
+        Map<BalanceKey, StockLevel> result = new HashMap<>();
+        if (keys == null || keys.isEmpty()) return result;
+
+        query(LEVELS_SQL, keys, rs -> result.put(new BalanceKey(rs.getLong(1), rs.getLong(2)),
+                new StockLevel(rs.getBigDecimal(3), rs.getBigDecimal(4))));
+        return result;
+    }
+
+    @Override
+    public Map<BalanceKey, BalanceChangeDto> findChanges(Collection<BalanceKey> keys) {
+        Map<BalanceKey, BalanceChangeDto> result = new HashMap<>();
+        if (keys == null || keys.isEmpty()) return result;
+
+        query(CHANGES_SQL, keys, rs -> {
+            BigDecimal amount = rs.getBigDecimal(4);
+            BigDecimal reserved = rs.getBigDecimal(5);
+            BalanceChangeDto c = new BalanceChangeDto(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                    amount, reserved, amount.subtract(reserved));
+            result.put(new BalanceKey(c.resourceId(), c.unitId()), c);
+        });
+        return result;
+    }
+
+    @Override
+    public Map<BalanceKey, StockLevel> lockLevels(Collection<BalanceKey> keys) {
+        if (keys == null || keys.isEmpty()) return new HashMap<>();
+
+        // Levels are read by a second statement: a row lock waited on inside the first
+        // would re-read the base row but keep the shard sums of its older snapshot,
+        // counting a concurrent fold twice. Once the base rows are locked no fold can
+        // run, and shards only grow, so the fresh read is a safe lower bound.
+        query(LOCK_SQL, keys, rs -> {});
+        return findLevels(keys);
+    }
+
+    private void query(String sql, Collection<BalanceKey> keys, RowCallbackHandler handler) {
+        List<BalanceKey> sorted = keys.stream().distinct().sorted().toList();
+
+        jdbcTemplate.query(sql, ps -> {
+            Connection c = ps.getConnection();
+            ps.setArray(1, c.createArrayOf("bigint", resourceIds(sorted)));
+            ps.setArray(2, c.createArrayOf("bigint", unitIds(sorted)));
+        }, handler);
+    }
+
+    @Override
+    public void applyDeltas(DocumentType docType, Map<Long, ? extends Map<BalanceKey, BigDecimal>> deltasByDoc,
+                            Map<BalanceKey, BigDecimal> reserved, Map<BalanceKey, Integer> shards) {
+        List<Long> docIds = new ArrayList<>();
+        List<BalanceKey> keys = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        List<BigDecimal> reservations = new ArrayList<>();
+        List<Integer> shardIds = new ArrayList<>();
+        if (deltasByDoc != null) {
+            deltasByDoc.forEach((docId, deltas) -> deltas.forEach((k, v) -> {
+                docIds.add(docId);
+                keys.add(k);
+                amounts.add(v);
+                reservations.add(BigDecimal.ZERO);
+                shardIds.add(shards == null ? null : shards.get(k));
+            }));
+        }
+        if (reserved != null) {
+            reserved.forEach((k, v) -> {
+                docIds.add(null);
+                keys.add(k);
+                amounts.add(BigDecimal.ZERO);
+                reservations.add(v);
+                shardIds.add(null);
+            });
+        }
+        if (keys.isEmpty()) return;
+
+        jdbcTemplate.update(APPLY_SQL, ps -> {
+            Connection c = ps.getConnection();
+            ps.setArray(1, c.createArrayOf("bigint", docIds.toArray()));
+            ps.setArray(2, c.createArrayOf("bigint", resourceIds(keys)));
+            ps.setArray(3, c.createArrayOf("bigint", unitIds(keys)));
+            ps.setArray(4, c.createArrayOf("numeric", amounts.toArray()));
+            ps.setArray(5, c.createArrayOf("numeric", reservations.toArray()));
+            ps.setArray(6, c.createArrayOf("int4", shardIds.toArray()));
+            ps.setString(7, docType == null ? null : docType.name());
+        });
+    }
+
+    @Override
+    public List<BalanceKey> findShardedKeys(int limit) {
+        return jdbcTemplate.query(SHARDED_KEYS_SQL,
+                (rs, i) -> new BalanceKey(rs.getLong(1), rs.getLong(2)), limit);
+    }
+
+    @Override
+    public int foldShards(Collection<BalanceKey> keys) {
+        if (keys == null || keys.isEmpty()) return 0;
+
+        List<BalanceKey> sorted = keys.stream().distinct().sorted().toList();
+        return jdbcTemplate.update(FOLD_SQL, ps -> {
+            Connection c = ps.getConnection();
+            ps.setArray(1, c.createArrayOf("bigint", resourceIds(sorted)));
+            ps.setArray(2, c.createArrayOf("bigint", unitIds(sorted)));
+        });
+    }
+
+    static Long[] resourceIds(List<BalanceKey> keys) {
+        return keys.stream().map(BalanceKey::resourceId).toArray(Long[]::new);
+    }
+
+    static Long[] unitIds(List<BalanceKey> keys) {
+        return keys.stream().map(BalanceKey::unitId).toArray(Long[]::new);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.BalanceKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Repository
+public class DailyMovementRepository {
+
+    private static final String APPLY_SQL = """
+            insert into daily_movements (date, resource_id, unit_id, qty_in, qty_out)
+            select ?, k.resource_id, k.unit_id, k.qty_in, k.qty_out
+            from unnest(?::bigint[], ?::bigint[], ?::numeric[], ?::numeric[]) as k(resource_id, unit_id, qty_in, qty_out)
+            order by k.resource_id, k.unit_id
+            on conflict (date, resource_id, unit_id)
+            do update set qty_in = daily_movements.qty_in + excluded.qty_in,
+                          qty_out = daily_movements.qty_out + excluded.qty_out
+            """;
+
+    private static final String DELETE_RANGE_SQL =
+            "delete from daily_movements where " + inRange("date");
+
+    private static final String REBUILD_RANGE_SQL = """
+            insert into daily_movements (date, resource_id, unit_id, qty_in, qty_out)
+            select k.date, k.resource_id, k.unit_id, sum(k.qty_in), sum(k.qty_out)
+            from (
+                select r.date, ri.resource_id, ri.unit_id, ri.quantity as qty_in, 0 as qty_out
+                from receipt_items ri
+                join receipts r on r.id = ri.receipt_id
+                where %s
+                union all
+                select s.date, si.resource_id, si.unit_id, 0, si.quantity
+                from shipment_items si
+                join shipments s on s.id = si.shipment_id
+                where s.state = 'SIGNED' and %s
+            ) k
+            group by k.date, k.resource_id, k.unit_id
+            """.formatted(inRange("r.date"), inRange("s.date"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DailyMovementRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds signed incoming/outgoing quantities to the rollup rows of one day, creating
+     * missing rows. Keys are written in (resource, unit) order.
+     */
+    public void apply(LocalDate date, Map<BalanceKey, BigDecimal> qtyIn, Map<BalanceKey, BigDecimal> qtyOut) {
+        SortedMap<BalanceKey, BigDecimal[]> rows = new TreeMap<>();
+        qtyIn.forEach((k, q) -> rows.computeIfAbsent(k, x -> zeroPair())[0] = q);
+        qtyOut.forEach((k, q) -> rows.computeIfAbsent(k, x -> zeroPair())[1] = q);
+        if (rows.isEmpty()) return;
+
+        List<BalanceKey> keys = new ArrayList<>(rows.keySet());
+        BigDecimal[] in = rows.values().stream().map(v -> v[0]).toArray(BigDecimal[]::new);
+        BigDecimal[] out = rows.values().stream().map(v -> v[1]).toArray(BigDecimal[]::new);
+
+        jdbcTemplate.update(APPLY_SQL, ps -> {
+            Connection c = ps.getConnection();
+            ps.setObject(1, date);
+            ps.setArray(2, c.createArrayOf("bigint", BalanceRepositoryCustomImpl.resourceIds(keys)));
+            ps.setArray(3, c.createArrayOf("bigint", BalanceRepositoryCustomImpl.unitIds(keys)));
+            ps.setArray(4, c.createArrayOf("numeric", in));
+            ps.setArray(5, c.createArrayOf("numeric", out));
+        });
+    }
+
+    /**
+     * Waits for transactions that wrote rollup rows and blocks new writers until the
+     * surrounding transaction ends; readers are not blocked.
+     */
+    public void lockAgainstWrites() {
+        jdbcTemplate.execute("lock table daily_movements in share mode");
+    }
+
+    /**
+     * Recomputes the rollup for [from, to] (open ends unbounded) from the documents.
+     * Blocks concurrent incremental writers until the surrounding transaction ends.
+     * Returns the number of rows written.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        jdbcTemplate.execute("lock table daily_movements in exclusive mode");
+
+        jdbcTemplate.update(DELETE_RANGE_SQL, ps -> {
+            setDate(ps, 1, from);
+            setDate(ps, 2, to);
+        });
+        return jdbcTemplate.update(REBUILD_RANGE_SQL, ps -> {
+            setDate(ps, 1, from);
+            setDate(ps, 2, to);
+            setDate(ps, 3, from);
+            setDate(ps, 4, to);
+        });
+    }
+
+    // Two date parameters; a null end means unbounded on that side.
+    private static String inRange(String column) {
+        return column + " >= coalesce(cast(? as date), date '-infinity') and "
+                + column + " <= coalesce(cast(? as date), date 'infinity')";
+    }
+
+    private static BigDecimal[] zeroPair() {
+        return new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO};
+    }
+
+    private static void setDate(PreparedStatement ps, int i, LocalDate date) throws SQLException {
+        if (date == null) ps.setNull(i, Types.DATE);
+        else ps.setObject(i, date);
+    }
+}
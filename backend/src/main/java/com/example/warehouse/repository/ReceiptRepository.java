@@ -1,17 +1,27 @@
 package com.example.warehouse.repository;
 
 import com.example.warehouse.entity.Receipt;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
+public interface ReceiptRepository extends JpaRepository<Receipt, Long>, ReceiptRepositoryCustom {
 
     boolean existsByNumberIgnoreCase(String number);
 
+    // Bumps the version on flush even when only the lines change.
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select r from Receipt r where r.id = :id")
+    Optional<Receipt> findForUpdateById(@Param("id") Long id);
+
     @EntityGraph(attributePaths = {"items", "items.resource", "items.unit"})
-    @Query("select distinct r from Receipt r")
-    List<Receipt> findAllWithItems();
-}
\ No newline at end of file
+    @Query("select distinct r from Receipt r where r.id in :ids")
+    List<Receipt> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+}
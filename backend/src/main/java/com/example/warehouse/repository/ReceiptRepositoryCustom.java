@@ -0,0 +1,21 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.DocumentCursor;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ReceiptRepositoryCustom {
+
+    /**
+     * Keys of receipts matching the filters, ordered by (date desc, id desc) and
+     * starting after {@code after}. Null or empty filters are ignored.
+     */
+    List<DocumentCursor> searchKeys(LocalDate from, LocalDate to,
+                                    Collection<String> numbersLower,
+                                    Collection<Long> resourceIds,
+                                    Collection<Long> unitIds,
+                                    DocumentCursor after,
+                                    int limit);
+}
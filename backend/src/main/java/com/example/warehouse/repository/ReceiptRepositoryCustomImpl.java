@@ -0,0 +1,74 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.DocumentCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReceiptRepositoryCustomImpl implements ReceiptRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public ReceiptRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<DocumentCursor> searchKeys(LocalDate from, LocalDate to,
+                                           Collection<String> numbersLower,
+                                           Collection<Long> resourceIds,
+                                           Collection<Long> unitIds,
+                                           DocumentCursor after,
+                                           int limit) {
+
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.warehouse.dto.DocumentCursor(r.date, r.id) from Receipt r where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        if (from != null) {
+            jpql.append(" and r.date >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" and r.date <= :to");
+            params.put("to", to);
+        }
+        if (numbersLower != null && !numbersLower.isEmpty()) {
+            jpql.append(" and lower(r.number) in :numbers");
+            params.put("numbers", numbersLower);
+        }
+
+        boolean byResource = resourceIds != null && !resourceIds.isEmpty();
+        boolean byUnit = unitIds != null && !unitIds.isEmpty();
+        if (byResource || byUnit) {
+            jpql.append(" and exists (select 1 from ReceiptItem i where i.receipt = r");
+            if (byResource) {
+                jpql.append(" and i.resource.id in :resourceIds");
+                params.put("resourceIds", resourceIds);
+            }
+            if (byUnit) {
+                jpql.append(" and i.unit.id in :unitIds");
+                params.put("unitIds", unitIds);
+            }
+            jpql.append(")");
+        }
+
+        if (after != null) {
+            jpql.append(" and (r.date < :afterDate or (r.date = :afterDate and r.id < :afterId))");
+            params.put("afterDate", after.date());
+            params.put("afterId", after.id());
+        }
+
+        jpql.append(" order by r.date desc, r.id desc");
+
+        TypedQuery<DocumentCursor> q = entityManager.createQuery(jpql.toString(), DocumentCursor.class);
+        params.forEach(q::setParameter);
+        q.setMaxResults(limit);
+        return q.getResultList();
+    }
+}
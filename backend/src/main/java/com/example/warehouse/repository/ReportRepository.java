@@ -0,0 +1,102 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.TurnoverRowDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+@Repository
+public class ReportRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String KEY_FILTER = """
+              and (cardinality(?::bigint[]) = 0 or %1$s.resource_id = any(?::bigint[]))
+              and (cardinality(?::bigint[]) = 0 or %1$s.unit_id = any(?::bigint[]))
+            """;
+
+    // Reads the daily_movements rollup (one row per day and key) instead of document lines,
+    // plus the ledger's opening entries (balances that predate the documents). Those and
+    // the days before the range start fold into the opening balance; open ends are infinite.
+    private static final String TURNOVER_SQL = """
+            with p as (
+                select coalesce(cast(? as date), date '-infinity') as d_from,
+                       coalesce(cast(? as date), date 'infinity') as d_to
+            )
+            select r.id, r.name, u.id, u.name,
+                   coalesce(sum(k.qty_in - k.qty_out) filter (where k.opening or k.date < p.d_from), 0) as opening,
+                   coalesce(sum(k.qty_in) filter (where not k.opening and k.date >= p.d_from), 0) as received,
+                   coalesce(sum(k.qty_out) filter (where not k.opening and k.date >= p.d_from), 0) as shipped
+            from (
+                select d.date, d.resource_id, d.unit_id, d.qty_in, d.qty_out, false as opening
+                from daily_movements d
+                union all
+                select null, m.resource_id, m.unit_id, m.delta, 0, true
+                from stock_movements m
+                where m.doc_type = 'OPENING'
+            ) k
+            cross join p
+            join resources r on r.id = k.resource_id
+            join units u on u.id = k.unit_id
+            where (k.opening or k.date <= p.d_to)
+            """ + KEY_FILTER.formatted("k") + """
+            group by r.id, r.name, u.id, u.name
+            order by r.name, u.name
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Streams turnover rows to {@code sink} as they are read. Must run inside a
+     * transaction so the driver can fetch through a cursor instead of buffering.
+     */
+    public void streamTurnover(LocalDate from, LocalDate to,
+                               Collection<Long> resourceIds, Collection<Long> unitIds,
+                               Consumer<TurnoverRowDto> sink) {
+        Long[] res = resourceIds.toArray(Long[]::new);
+        Long[] units = unitIds.toArray(Long[]::new);
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(TURNOVER_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            setDate(ps, 1, from);
+            setDate(ps, 2, to);
+            setKeyFilter(ps, con, 3, res, units);
+            return ps;
+        }, rs -> {
+            BigDecimal opening = rs.getBigDecimal(5);
+            BigDecimal received = rs.getBigDecimal(6);
+            BigDecimal shipped = rs.getBigDecimal(7);
+            sink.accept(new TurnoverRowDto(
+                    rs.getLong(1), rs.getString(2),
+                    rs.getLong(3), rs.getString(4),
+                    opening, received, shipped,
+                    opening.add(received).subtract(shipped)));
+        });
+    }
+
+    private static void setDate(PreparedStatement ps, int i, LocalDate date) throws SQLException {
+        if (date == null) ps.setNull(i, Types.DATE);
+        else ps.setObject(i, date);
+    }
+
+    private static void setKeyFilter(PreparedStatement ps, Connection c, int i,
+                                     Long[] resourceIds, Long[] unitIds) throws SQLException {
+        ps.setArray(i++, c.createArrayOf("bigint", resourceIds));
+        ps.setArray(i++, c.createArrayOf("bigint", resourceIds));
+        ps.setArray(i++, c.createArrayOf("bigint", unitIds));
+        ps.setArray(i, c.createArrayOf("bigint", unitIds));
+    }
+}
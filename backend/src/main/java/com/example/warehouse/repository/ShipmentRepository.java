@@ -2,18 +2,33 @@ package com.example.warehouse.repository;
 
 import com.example.warehouse.entity.Shipment;
 import com.example.warehouse.entity.ShipmentState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
+public interface ShipmentRepository extends JpaRepository<Shipment, Long>, ShipmentRepositoryCustom {
     boolean existsByNumberIgnoreCase(String number);
 
+    // Bumps the version on flush even when only the lines change.
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Shipment s where s.id = :id")
+    Optional<Shipment> findForUpdateById(@Param("id") Long id);
+
     List<Shipment> findAllByDateBetween(LocalDate from, LocalDate to);
     List<Shipment> findAllByState(ShipmentState state);
 
-    @Query("select distinct s.number from Shipment s where s.number is not null order by s.number")
-    List<String> findDistinctNumbers();
+    @EntityGraph(attributePaths = {"client", "items"})
+    @Query("select distinct s from Shipment s where s.id in :ids")
+    List<Shipment> findAllWithClientAndItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select min(i.resource.id) from ShipmentItem i where i.shipment.id = :id")
+    Long findLowestResourceId(@Param("id") Long id);
 }
\ No newline at end of file
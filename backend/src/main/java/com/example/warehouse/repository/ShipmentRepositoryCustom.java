@@ -0,0 +1,36 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.DocumentCursor;
+import com.example.warehouse.entity.ShipmentState;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ShipmentRepositoryCustom {
+
+    /**
+     * Keys of shipments matching the filters, ordered by (date desc, id desc) and
+     * starting after {@code after}. Null or empty filters are ignored.
+     */
+    List<DocumentCursor> searchKeys(LocalDate from, LocalDate to,
+                                    Collection<String> numbersLower,
+                                    Collection<Long> resourceIds,
+                                    Collection<Long> unitIds,
+                                    Long clientId,
+                                    ShipmentState state,
+                                    DocumentCursor after,
+                                    int limit);
+
+    long countMatching(LocalDate from, LocalDate to,
+                       Collection<String> numbersLower,
+                       Collection<Long> resourceIds,
+                       Collection<Long> unitIds,
+                       Long clientId,
+                       ShipmentState state);
+
+    /**
+     * Planner row estimate for the whole table, or -1 when statistics are missing.
+     */
+    long estimateTotal();
+}
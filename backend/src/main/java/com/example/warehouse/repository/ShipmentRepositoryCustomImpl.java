@@ -0,0 +1,119 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.DocumentCursor;
+import com.example.warehouse.entity.ShipmentState;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ShipmentRepositoryCustomImpl implements ShipmentRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public ShipmentRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<DocumentCursor> searchKeys(LocalDate from, LocalDate to,
+                                           Collection<String> numbersLower,
+                                           Collection<Long> resourceIds,
+                                           Collection<Long> unitIds,
+                                           Long clientId,
+                                           ShipmentState state,
+                                           DocumentCursor after,
+                                           int limit) {
+
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.warehouse.dto.DocumentCursor(s.date, s.id) from Shipment s where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendFilters(jpql, params, from, to, numbersLower, resourceIds, unitIds, clientId, state);
+
+        if (after != null) {
+            jpql.append(" and (s.date < :afterDate or (s.date = :afterDate and s.id < :afterId))");
+            params.put("afterDate", after.date());
+            params.put("afterId", after.id());
+        }
+
+        jpql.append(" order by s.date desc, s.id desc");
+
+        TypedQuery<DocumentCursor> q = entityManager.createQuery(jpql.toString(), DocumentCursor.class);
+        params.forEach(q::setParameter);
+        q.setMaxResults(limit);
+        return q.getResultList();
+    }
+
+    @Override
+    public long countMatching(LocalDate from, LocalDate to,
+                              Collection<String> numbersLower,
+                              Collection<Long> resourceIds,
+                              Collection<Long> unitIds,
+                              Long clientId,
+                              ShipmentState state) {
+
+        StringBuilder jpql = new StringBuilder("select count(s) from Shipment s where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendFilters(jpql, params, from, to, numbersLower, resourceIds, unitIds, clientId, state);
+
+        TypedQuery<Long> q = entityManager.createQuery(jpql.toString(), Long.class);
+        params.forEach(q::setParameter);
+        return q.getSingleResult();
+    }
+
+    @Override
+    public long estimateTotal() {
+        Object v = entityManager
+                .createNativeQuery("select cast(reltuples as bigint) from pg_class where oid = to_regclass('shipments')")
+                .getSingleResult();
+        return (v == null) ? -1 : ((Number) v).longValue();
+    }
+
+    private void appendFilters(StringBuilder jpql, Map<String, Object> params,
+                               LocalDate from, LocalDate to,
+                               Collection<String> numbersLower,
+                               Collection<Long> resourceIds,
+                               Collection<Long> unitIds,
+                               Long clientId,
+                               ShipmentState state) {
+        if (from != null) {
+            jpql.append(" and s.date >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" and s.date <= :to");
+            params.put("to", to);
+        }
+        if (state != null) {
+            jpql.append(" and s.state = :state");
+            params.put("state", state);
+        }
+        if (clientId != null) {
+            jpql.append(" and s.client.id = :clientId");
+            params.put("clientId", clientId);
+        }
+        if (numbersLower != null && !numbersLower.isEmpty()) {
+            jpql.append(" and lower(s.number) in :numbers");
+            params.put("numbers", numbersLower);
+        }
+
+        boolean byResource = resourceIds != null && !resourceIds.isEmpty();
+        boolean byUnit = unitIds != null && !unitIds.isEmpty();
+        if (byResource || byUnit) {
+            jpql.append(" and exists (select 1 from ShipmentItem i where i.shipment = s");
+            if (byResource) {
+                jpql.append(" and i.resource.id in :resourceIds");
+                params.put("resourceIds", resourceIds);
+            }
+            if (byUnit) {
+                jpql.append(" and i.unit.id in :unitIds");
+                params.put("unitIds", unitIds);
+            }
+            jpql.append(")");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.warehouse.repository;
+
+import com.example.warehouse.dto.StockMovementDto;
+import com.example.warehouse.entity.StockMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    /**
+     * Newest-first history of one balance key, served by idx_stock_movements_key_time.
+     */
+    @Query("""
+            select new com.example.warehouse.dto.StockMovementDto(
+                m.id, m.docType, m.docId, m.resourceId, m.unitId, m.delta, m.createdAt)
+            from StockMovement m
+            where m.resourceId = :resourceId and m.unitId = :unitId
+              and m.createdAt >= :from and m.createdAt < :to
+            order by m.createdAt desc, m.id desc
+            """)
+    List<StockMovementDto> findHistory(@Param("resourceId") Long resourceId,
+                                       @Param("unitId") Long unitId,
+                                       @Param("from") OffsetDateTime from,
+                                       @Param("to") OffsetDateTime to,
+                                       Pageable page);
+}
@@ -0,0 +1,14 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.BalanceKey;
+
+import java.util.List;
+
+/**
+ * Keys written by one {@link BalanceService#applyDeltas} call, published inside the
+ * transaction and delivered to listeners after it commits. Listeners read the levels
+ * themselves: increments of sharded keys do not lock the base row, so totals read
+ * inside the writing transaction can miss a concurrent increment.
+ */
+public record BalanceChangedEvent(List<BalanceKey> keys) {
+}
@@ -1,132 +1,369 @@
 package com.example.warehouse.service;
 
+import com.example.warehouse.dto.BalanceChangeDto;
 import com.example.warehouse.dto.BalanceDto;
-import com.example.warehouse.entity.Balance;
-import com.example.warehouse.entity.Resource;
-import com.example.warehouse.entity.Unit;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.ReferenceDto;
+import com.example.warehouse.dto.StockLevel;
+import com.example.warehouse.dto.StockMovementDto;
+import com.example.warehouse.entity.DocumentType;
 import com.example.warehouse.exception.BusinessException;
-import com.example.warehouse.exception.NotFoundException;
 import com.example.warehouse.repository.BalanceRepository;
+import com.example.warehouse.repository.StockMovementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class BalanceService {
 
+    private static final int DEFAULT_HISTORY_SIZE = 100;
+    private static final int MAX_HISTORY_SIZE = 1000;
+    private static final int FOLD_BATCH_SIZE = 500;
+
     private final BalanceRepository balanceRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final StockMovementRepository stockMovementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Set<BalanceKey> shardedKeys;
+    private final int shardCount;
 
-    public BalanceService(BalanceRepository balanceRepository) {
+    public BalanceService(BalanceRepository balanceRepository,
+                          ReferenceDataCache referenceDataCache,
+                          StockMovementRepository stockMovementRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${balances.shards.keys:}") String shardedKeys,
+                          @Value("${balances.shards.count:8}") int shardCount) {
+        if (shardCount <= 0) throw new IllegalArgumentException("balances.shards.count must be > 0");
         this.balanceRepository = balanceRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.stockMovementRepository = stockMovementRepository;
+        this.eventPublisher = eventPublisher;
+        this.shardedKeys = parseKeys(shardedKeys);
+        this.shardCount = shardCount;
     }
 
     @Transactional(readOnly = true)
-    public List<Balance> search(List<Long> resourceIds, List<Long> unitIds) {
-        List<Balance> all = balanceRepository.findAll();
+    public List<BalanceDto> searchDto(List<Long> resourceIds, List<Long> unitIds) {
+        Set<Long> resSet = toIdSet(resourceIds);
+        Set<Long> unitSet = toIdSet(unitIds);
 
-        if (resourceIds != null && !resourceIds.isEmpty()) {
-            all = all.stream()
-                    .filter(b -> b.getResource() != null && b.getResource().getId() != null
-                            && resourceIds.contains(b.getResource().getId()))
-                    .toList();
+        if (resSet.isEmpty() && unitSet.isEmpty()) {
+            return balanceRepository.findAllDto();
         }
-
-        if (unitIds != null && !unitIds.isEmpty()) {
-            all = all.stream()
-                    .filter(b -> b.getUnit() != null && b.getUnit().getId() != null
-                            && unitIds.contains(b.getUnit().getId()))
-                    .toList();
+        if (unitSet.isEmpty()) {
+            return balanceRepository.findDtoByResourceIds(resSet);
+        }
+        if (resSet.isEmpty()) {
+            return balanceRepository.findDtoByUnitIds(unitSet);
         }
+        return balanceRepository.findDtoByResourceIdsAndUnitIds(resSet, unitSet);
+    }
 
-        return all;
+    @Transactional(readOnly = true)
+    public BigDecimal getAmountOrZero(Long resourceId, Long unitId) {
+        if (resourceId == null || unitId == null) return BigDecimal.ZERO;
+        return balanceRepository.findAmount(resourceId, unitId)
+                .orElse(BigDecimal.ZERO);
     }
 
+    /**
+     * Available (on hand minus reserved) amounts for many keys in one round trip; keys
+     * without a balance map to zero.
+     */
     @Transactional(readOnly = true)
-    public List<BalanceDto> searchDto(List<Long> resourceIds, List<Long> unitIds) {
-        return search(resourceIds, unitIds).stream()
-                .map(this::toDto)
-                .toList();
+    public Map<BalanceKey, BigDecimal> getAvailable(Collection<BalanceKey> keys) {
+        Map<BalanceKey, BigDecimal> result = new HashMap<>();
+        if (keys == null || keys.isEmpty()) return result;
+
+        Map<BalanceKey, StockLevel> found = balanceRepository.findLevels(keys);
+        for (BalanceKey k : keys) {
+            result.put(k, found.getOrDefault(k, StockLevel.ZERO).available());
+        }
+        return result;
     }
 
+    /**
+     * Current levels and versions of the given keys in key order; keys without a
+     * balance are reported as zero with version 0.
+     */
     @Transactional(readOnly = true)
-    public BigDecimal getAmountOrZero(Long resourceId, Long unitId) {
-        if (resourceId == null || unitId == null) return BigDecimal.ZERO;
-        return balanceRepository.findByResourceIdAndUnitId(resourceId, unitId)
-                .map(Balance::getAmount)
-                .orElse(BigDecimal.ZERO);
+    public List<BalanceChangeDto> getChanges(Collection<BalanceKey> keys) {
+        List<BalanceChangeDto> changes = new ArrayList<>();
+        if (keys == null || keys.isEmpty()) return changes;
+
+        Map<BalanceKey, BalanceChangeDto> found = balanceRepository.findChanges(keys);
+        for (BalanceKey k : new TreeSet<>(keys)) {
+            BalanceChangeDto c = found.get(k);
+            changes.add(c != null ? c : new BalanceChangeDto(k.resourceId(), k.unitId(), 0,
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
+        }
+        return changes;
+    }
+
+    /**
+     * Ledger entries of one (resource, unit), newest first. Dates are inclusive days
+     * in the server time zone; open ends are unbounded.
+     */
+    @Transactional(readOnly = true)
+    public List<StockMovementDto> getMovements(Long resourceId, Long unitId,
+                                               LocalDate from, LocalDate to, Integer limit) {
+        if (resourceId == null) throw new BusinessException("Resource is required");
+        if (unitId == null) throw new BusinessException("Unit is required");
+
+        int size = (limit == null || limit <= 0) ? DEFAULT_HISTORY_SIZE : Math.min(limit, MAX_HISTORY_SIZE);
+        ZoneId zone = ZoneId.systemDefault();
+        // Movements are stamped with the database clock, so "now + 1 day" safely covers an open end.
+        OffsetDateTime start = (from == null)
+                ? Instant.EPOCH.atOffset(ZoneOffset.UTC)
+                : from.atStartOfDay(zone).toOffsetDateTime();
+        OffsetDateTime end = (to == null)
+                ? OffsetDateTime.now(zone).plusDays(1)
+                : to.plusDays(1).atStartOfDay(zone).toOffsetDateTime();
+
+        return stockMovementRepository.findHistory(resourceId, unitId, start, end, PageRequest.of(0, size));
     }
 
+    /**
+     * Applies the net change of a whole document. Deltas for the same key are merged,
+     * every touched row is locked in (resource, unit) order, available stock for all
+     * decreasing keys is checked at once and all changes are written in one statement
+     * together with their stock movement rows. The touched keys are published as a
+     * {@link BalanceChangedEvent}.
+     * <p>
+     * Increments of keys listed in {@code balances.shards.keys} skip the base row lock
+     * and go to one of {@code balances.shards.count} shard rows, picked once per call,
+     * so concurrent receipts of the same hot item do not queue behind each other.
+     * Decrements of those keys still lock the base row, are checked against the base
+     * amount plus all shards and fold the shards first, so the base row never goes
+     * below zero.
+     */
     @Transactional
-    public void add(Resource resource, Unit unit, BigDecimal qty) {
-        validateQty(qty);
-        validateRefs(resource, unit);
+    public void applyDeltas(DocumentType docType, Long docId, Map<BalanceKey, BigDecimal> deltas) {
+        applyDeltas(docType, docId, deltas, Map.of());
+    }
 
-        Balance bal = balanceRepository
-                .findByResourceIdAndUnitId(resource.getId(), unit.getId())
-                .orElseGet(() -> {
-                    Balance b = new Balance();
-                    b.setResource(resource);
-                    b.setUnit(unit);
-                    b.setAmount(BigDecimal.ZERO);
-                    return b;
-                });
+    /**
+     * {@link #applyDeltas} that also changes reserved quantities in the same write.
+     * Signing a draft passes the same negative quantities for both, which turns its
+     * reservation into a decrement without touching availability; the decrement must
+     * still fit into the stock on hand.
+     */
+    @Transactional
+    public void applyDeltas(DocumentType docType, Long docId,
+                            Map<BalanceKey, BigDecimal> deltas, Map<BalanceKey, BigDecimal> reserved) {
+        if (docType == null) throw new BusinessException("Document type is required");
+        Map<Long, Map<BalanceKey, BigDecimal>> byDoc = new HashMap<>();
+        byDoc.put(docId, deltas);
+        apply(docType, byDoc, reserved);
+    }
 
-        bal.setAmount(bal.getAmount().add(qty));
-        balanceRepository.save(bal);
+    /**
+     * {@link #applyDeltas} for several documents of one type at once: one ledger row per
+     * (document, key) and one merged balance change per key, checked and locked together.
+     */
+    @Transactional
+    public void applyDocumentDeltas(DocumentType docType, Map<Long, ? extends Map<BalanceKey, BigDecimal>> deltasByDoc) {
+        if (docType == null) throw new BusinessException("Document type is required");
+        apply(docType, deltasByDoc, Map.of());
     }
 
+    /**
+     * Changes reserved quantities only. Positive values must fit into the available
+     * stock; negative values release an earlier reservation.
+     */
     @Transactional
-    public void subtract(Resource resource, Unit unit, BigDecimal qty) {
-        validateQty(qty);
-        validateRefs(resource, unit);
+    public void reserve(Map<BalanceKey, BigDecimal> reserved) {
+        apply(null, Map.of(), reserved);
+    }
+
+    private void apply(DocumentType docType, Map<Long, ? extends Map<BalanceKey, BigDecimal>> deltasByDoc,
+                       Map<BalanceKey, BigDecimal> reserved) {
+        Map<Long, SortedMap<BalanceKey, BigDecimal>> byDoc = new LinkedHashMap<>();
+        SortedMap<BalanceKey, BigDecimal> merged = new TreeMap<>();
+        if (deltasByDoc != null) {
+            deltasByDoc.forEach((docId, deltas) -> {
+                SortedMap<BalanceKey, BigDecimal> doc = mergeDeltas(deltas);
+                if (doc.isEmpty()) return;
+                byDoc.put(docId, doc);
+                doc.forEach((k, v) -> merged.merge(k, v, BigDecimal::add));
+            });
+        }
+        SortedMap<BalanceKey, BigDecimal> reservations = mergeDeltas(reserved);
+        if (byDoc.isEmpty() && reservations.isEmpty()) return;
 
-        Balance bal = balanceRepository
-                .findByResourceIdAndUnitId(resource.getId(), unit.getId())
-                .orElseThrow(() -> new NotFoundException("Balance not found for resource/unit"));
+        Map<BalanceKey, Integer> shards = new HashMap<>();
+        if (!shardedKeys.isEmpty()) {
+            int shard = ThreadLocalRandom.current().nextInt(shardCount);
+            merged.forEach((k, v) -> {
+                if (v.signum() > 0 && shardedKeys.contains(k) && !reservations.containsKey(k)) shards.put(k, shard);
+            });
+        }
+
+        SortedSet<BalanceKey> touched = new TreeSet<>(merged.keySet());
+        touched.addAll(reservations.keySet());
+        List<BalanceKey> locked = new ArrayList<>(touched.size());
+        for (BalanceKey k : touched) {
+            if (!shards.containsKey(k)) locked.add(k);
+        }
+        Map<BalanceKey, StockLevel> current = balanceRepository.lockLevels(locked);
 
-        BigDecimal next = bal.getAmount().subtract(qty);
-        if (next.compareTo(BigDecimal.ZERO) < 0) {
-            throw new BusinessException("Not enough balance for resource: " + safeName(resource));
+        for (BalanceKey k : touched) {
+            String problem = checkChange(current.getOrDefault(k, StockLevel.ZERO),
+                    merged.getOrDefault(k, BigDecimal.ZERO), reservations.getOrDefault(k, BigDecimal.ZERO));
+            if (problem != null) throw new BusinessException(problem + resourceName(k.resourceId()));
         }
 
-        bal.setAmount(next);
-        balanceRepository.save(bal);
+        List<BalanceKey> folded = new ArrayList<>();
+        for (BalanceKey k : locked) {
+            if (shardedKeys.contains(k) && merged.getOrDefault(k, BigDecimal.ZERO).signum() < 0) folded.add(k);
+        }
+        balanceRepository.foldShards(folded);
+
+        balanceRepository.applyDeltas(docType, byDoc, reservations, shards);
+
+        eventPublisher.publishEvent(new BalanceChangedEvent(List.copyOf(touched)));
     }
 
-    private void validateQty(BigDecimal qty) {
-        if (qty == null || qty.signum() <= 0) {
-            throw new BusinessException("Quantity must be > 0");
+    /**
+     * Bulk variant of {@link #applyDeltas(DocumentType, Long, Map, Map)}: documents are
+     * taken in iteration order, each one only if all of its changes still fit after the
+     * ones accepted before it. Accepted documents are written in one batch; the returned
+     * map holds the reason for every document that was left out.
+     */
+    @Transactional
+    public Map<Long, String> applyWhatFits(DocumentType docType,
+                                           Map<Long, ? extends Map<BalanceKey, BigDecimal>> deltasByDoc,
+                                           Map<Long, ? extends Map<BalanceKey, BigDecimal>> reservedByDoc) {
+        if (docType == null) throw new BusinessException("Document type is required");
+        Map<Long, String> rejected = new LinkedHashMap<>();
+        if (deltasByDoc == null || deltasByDoc.isEmpty()) return rejected;
+
+        Set<BalanceKey> keys = new HashSet<>();
+        deltasByDoc.values().forEach(m -> keys.addAll(m.keySet()));
+        if (reservedByDoc != null) reservedByDoc.values().forEach(m -> keys.addAll(m.keySet()));
+        Map<BalanceKey, StockLevel> levels = new HashMap<>(balanceRepository.lockLevels(keys));
+
+        Map<Long, Map<BalanceKey, BigDecimal>> accepted = new LinkedHashMap<>();
+        Map<BalanceKey, BigDecimal> acceptedReserved = new HashMap<>();
+        for (Map.Entry<Long, ? extends Map<BalanceKey, BigDecimal>> doc : deltasByDoc.entrySet()) {
+            SortedMap<BalanceKey, BigDecimal> deltas = mergeDeltas(doc.getValue());
+            SortedMap<BalanceKey, BigDecimal> reserved = mergeDeltas(
+                    reservedByDoc == null ? null : reservedByDoc.get(doc.getKey()));
+            SortedSet<BalanceKey> docKeys = new TreeSet<>(deltas.keySet());
+            docKeys.addAll(reserved.keySet());
+
+            String problem = null;
+            for (BalanceKey k : docKeys) {
+                problem = checkChange(levels.getOrDefault(k, StockLevel.ZERO),
+                        deltas.getOrDefault(k, BigDecimal.ZERO), reserved.getOrDefault(k, BigDecimal.ZERO));
+                if (problem != null) {
+                    rejected.put(doc.getKey(), problem + resourceName(k.resourceId()));
+                    break;
+                }
+            }
+            if (problem != null) continue;
+
+            for (BalanceKey k : docKeys) {
+                StockLevel l = levels.getOrDefault(k, StockLevel.ZERO);
+                levels.put(k, new StockLevel(l.onHand().add(deltas.getOrDefault(k, BigDecimal.ZERO)),
+                        l.reserved().add(reserved.getOrDefault(k, BigDecimal.ZERO))));
+            }
+            accepted.put(doc.getKey(), deltas);
+            reserved.forEach((k, v) -> acceptedReserved.merge(k, v, BigDecimal::add));
         }
+
+        apply(docType, accepted, acceptedReserved);
+        return rejected;
+    }
+
+    /**
+     * Moves shard amounts back into their base rows so shards stay small and keys
+     * removed from {@code balances.shards.keys} collapse to a single row again.
+     * Totals do not change, so no event is published.
+     */
+    @Scheduled(fixedDelayString = "${balances.shards.fold-ms:60000}")
+    @Transactional
+    public int foldShards() {
+        List<BalanceKey> keys = balanceRepository.findShardedKeys(FOLD_BATCH_SIZE);
+        if (keys.isEmpty()) return 0;
+
+        balanceRepository.lockLevels(keys);
+        return balanceRepository.foldShards(keys);
     }
 
-    private void validateRefs(Resource resource, Unit unit) {
-        if (resource == null || resource.getId() == null) {
-            throw new BusinessException("Resource is required");
+    // Returns the start of an error message (to be completed with the resource name)
+    // when the change does not fit the level, otherwise null.
+    private static String checkChange(StockLevel level, BigDecimal amountDelta, BigDecimal reservedDelta) {
+        // Drafts reserved before V12 may exceed the stock on hand, so releasing a
+        // reservation into a decrement can fit availability and still overdraw.
+        if (amountDelta.signum() < 0 && level.onHand().add(amountDelta).signum() < 0) {
+            return "Not enough balance for resource: ";
+        }
+        BigDecimal availableDelta = amountDelta.subtract(reservedDelta);
+        if (availableDelta.signum() < 0 && level.available().add(availableDelta).signum() < 0) {
+            return "Not enough balance for resource: ";
         }
-        if (unit == null || unit.getId() == null) {
-            throw new BusinessException("Unit is required");
+        if (reservedDelta.signum() < 0 && level.reserved().add(reservedDelta).signum() < 0) {
+            return "No reserved stock to release for resource: ";
         }
+        return null;
     }
 
-    private String safeName(Resource r) {
-        return (r == null || r.getName() == null) ? "unknown" : r.getName();
+    private static SortedMap<BalanceKey, BigDecimal> mergeDeltas(Map<BalanceKey, BigDecimal> deltas) {
+        SortedMap<BalanceKey, BigDecimal> merged = new TreeMap<>();
+        if (deltas == null) return merged;
+        for (Map.Entry<BalanceKey, BigDecimal> e : deltas.entrySet()) {
+            BalanceKey k = e.getKey();
+            if (k == null || k.resourceId() == null) throw new BusinessException("Resource is required");
+            if (k.unitId() == null) throw new BusinessException("Unit is required");
+            if (e.getValue() == null) continue;
+            merged.merge(k, e.getValue(), BigDecimal::add);
+        }
+        merged.values().removeIf(v -> v.signum() == 0);
+        return merged;
     }
 
-    private BalanceDto toDto(Balance b) {
-        BalanceDto d = new BalanceDto();
-        d.setId(b.getId());
-        d.setAmount(b.getAmount());
+    private String resourceName(Long resourceId) {
+        return referenceDataCache.resource(resourceId)
+                .map(ReferenceDto::name)
+                .orElse("unknown");
+    }
 
-        if (b.getResource() != null) {
-            d.setResourceId(b.getResource().getId());
-            d.setResourceName(b.getResource().getName());
+    // "resourceId:unitId" pairs separated by commas, e.g. "12:1,12:3".
+    private static Set<BalanceKey> parseKeys(String value) {
+        if (value == null || value.isBlank()) return Set.of();
+        Set<BalanceKey> keys = new HashSet<>();
+        for (String part : value.split(",")) {
+            String p = part.trim();
+            if (p.isEmpty()) continue;
+            String[] ids = p.split(":");
+            if (ids.length != 2) {
+                throw new IllegalArgumentException("balances.shards.keys entry must be resourceId:unitId: " + p);
+            }
+            keys.add(new BalanceKey(Long.parseLong(ids[0].trim()), Long.parseLong(ids[1].trim())));
         }
-        if (b.getUnit() != null) {
-            d.setUnitId(b.getUnit().getId());
-            d.setUnitName(b.getUnit().getName());
+        return Set.copyOf(keys);
+    }
+
+    private Set<Long> toIdSet(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return Set.of();
+        Set<Long> set = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null) set.add(id);
         }
-        return d;
+        return set;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.entity.BalanceCheckpoint;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.BalanceCheckpointRepository;
+import com.example.warehouse.repository.DailyMovementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * Point-in-time balances by document date, on the same basis as the turnover report:
+ * the opening entries of the ledger plus the daily_movements rollup. A daily job
+ * chains snapshots (previous snapshot plus one day of rollup), daily checkpoints are
+ * kept for a retention window and month-end ones forever. An as-of lookup reads the
+ * nearest checkpoint and scans only the rollup days between it and the requested
+ * day, so its cost does not grow with the total length of the history.
+ * <p>
+ * A back-dated document, or a date edit, changes days that checkpoints already
+ * cover; {@link DailyMovementService} then drops those checkpoints and the next run
+ * of the job recreates them.
+ */
+@Service
+public class BalanceSnapshotService {
+
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final DailyMovementRepository dailyMovementRepository;
+    private final int dailyRetentionDays;
+    private final Duration closeLag;
+
+    public BalanceSnapshotService(BalanceCheckpointRepository checkpointRepository,
+                                  DailyMovementRepository dailyMovementRepository,
+                                  @Value("${balances.snapshot.daily-retention-days:90}") int dailyRetentionDays,
+                                  @Value("${balances.snapshot.close-lag-minutes:10}") long closeLagMinutes) {
+        this.checkpointRepository = checkpointRepository;
+        this.dailyMovementRepository = dailyMovementRepository;
+        this.dailyRetentionDays = dailyRetentionDays;
+        this.closeLag = Duration.ofMinutes(closeLagMinutes);
+    }
+
+    /**
+     * Balances after every document dated on or before {@code date}. Equals the closing
+     * balance of the turnover report for a range ending on {@code date}.
+     */
+    // Repeatable read: a checkpoint dropped by a concurrent write must still be readable
+    // after it was picked.
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<BalanceDto> searchAsOf(LocalDate date, List<Long> resourceIds, List<Long> unitIds) {
+        if (date == null) throw new BusinessException("Date is required");
+
+        Set<Long> res = toIdSet(resourceIds);
+        Set<Long> units = toIdSet(unitIds);
+
+        Optional<BalanceCheckpoint> before =
+                checkpointRepository.findTopBySnapshotDateLessThanEqualOrderBySnapshotDateDesc(date);
+        if (before.isPresent()) {
+            LocalDate base = before.get().getSnapshotDate();
+            return checkpointRepository.findFromSnapshot(base, 1, base, date, res, units);
+        }
+
+        // Before the first checkpoint: walk back from it rather than replaying from the start.
+        Optional<BalanceCheckpoint> after =
+                checkpointRepository.findTopBySnapshotDateGreaterThanOrderBySnapshotDateAsc(date);
+        if (after.isPresent()) {
+            LocalDate base = after.get().getSnapshotDate();
+            return checkpointRepository.findFromSnapshot(base, -1, date, base, res, units);
+        }
+
+        return checkpointRepository.findFromSnapshot(null, 1, null, date, res, units);
+    }
+
+    @Scheduled(cron = "${balances.snapshot.cron:0 15 0 * * *}")
+    @Transactional
+    public void checkpointYesterday() {
+        LocalDate today = LocalDate.now();
+        createCheckpoints(today.minusDays(1));
+        checkpointRepository.pruneDaily(today.minusDays(dailyRetentionDays));
+    }
+
+    /**
+     * Creates the missing daily checkpoints after the latest one, up to and including
+     * {@code upTo}. Without any checkpoint only {@code upTo} itself is created.
+     * Returns the dates that were written.
+     * <p>
+     * Document writes wait while this runs: they could otherwise change a day after it
+     * was summed but before its checkpoint is visible to them.
+     */
+    @Transactional
+    public List<LocalDate> createCheckpoints(LocalDate upTo) {
+        if (upTo == null) throw new BusinessException("Date is required");
+
+        OffsetDateTime closesAt = endOf(upTo).plus(closeLag);
+        if (OffsetDateTime.now().isBefore(closesAt)) {
+            throw new BusinessException("Day is not closed yet: " + upTo);
+        }
+
+        dailyMovementRepository.lockAgainstWrites();
+
+        Optional<BalanceCheckpoint> last =
+                checkpointRepository.findTopBySnapshotDateLessThanEqualOrderBySnapshotDateDesc(upTo);
+
+        LocalDate baseDate = last.map(BalanceCheckpoint::getSnapshotDate).orElse(null);
+        LocalDate day = (baseDate == null) ? upTo : baseDate.plusDays(1);
+
+        List<LocalDate> created = new ArrayList<>();
+        for (; !day.isAfter(upTo); day = day.plusDays(1)) {
+            if (checkpointRepository.createSnapshot(day, baseDate)) {
+                created.add(day);
+            }
+            baseDate = day;
+        }
+        return created;
+    }
+
+    private static OffsetDateTime endOf(LocalDate date) {
+        return date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+
+    private static Set<Long> toIdSet(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return Set.of();
+        Set<Long> set = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null) set.add(id);
+        }
+        return set;
+    }
+}
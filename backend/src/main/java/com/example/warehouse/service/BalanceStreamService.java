@@ -0,0 +1,247 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.BalanceChangeDto;
+import com.example.warehouse.dto.BalanceKey;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes committed balance changes to SSE subscribers. Every change gets an id
+ * {@code <boot>-<seq>}; the last {@code buffer-size} changes are kept so a client
+ * reconnecting with Last-Event-ID gets exactly what it missed. When the id is from
+ * another process run or already evicted, the client gets a fresh snapshot instead.
+ * All sends happen on one sender thread, which keeps every subscriber's stream in
+ * order and keeps slow clients off the committing request threads.
+ * <p>
+ * Committed changes only mark their keys dirty; the sender thread reads the current
+ * levels of all dirty keys in one query and numbers them as it goes. A read that starts
+ * after a commit sees it, so the last change sent for a key is never older than the
+ * last commit that touched it. Changes also carry the balance row version; a change
+ * older than the last one buffered, or sent to a subscriber, for its key is dropped.
+ */
+@Service
+public class BalanceStreamService {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String BALANCE_EVENT = "balance";
+
+    private record Entry(long seq, BalanceChangeDto change) {}
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        // Touched only on the sender thread.
+        long lastSent;
+        final Map<BalanceKey, Long> versions = new HashMap<>();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private final BalanceService balanceService;
+    private final int bufferSize;
+    private final long emitterTimeoutMs;
+
+    private final String boot = Long.toString(System.currentTimeMillis(), 36);
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    // Touched only on the sender thread.
+    private final ArrayDeque<Entry> buffer = new ArrayDeque<>();
+    private final Map<BalanceKey, Long> bufferedVersions = new HashMap<>();
+    private long seq;
+
+    // Keys committed since the last flush. Guarded by itself.
+    private final Set<BalanceKey> dirty = new TreeSet<>();
+    private boolean flushQueued;
+
+    public BalanceStreamService(BalanceService balanceService,
+                                @Value("${balances.stream.buffer-size:10000}") int bufferSize,
+                                @Value("${balances.stream.timeout-ms:1800000}") long emitterTimeoutMs) {
+        this.balanceService = balanceService;
+        this.bufferSize = bufferSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    /**
+     * Opens a stream. With a resumable {@code lastEventId} only the missed changes are
+     * replayed; otherwise a snapshot of all balances is sent first when requested (or
+     * when the client tried to resume and cannot).
+     */
+    public SseEmitter subscribe(String lastEventId, boolean snapshot) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Runnable remove = () -> subscribers.removeIf(s -> s.emitter == emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        Long resumeFrom = parseSeq(lastEventId);
+        boolean wantSnapshot = snapshot || lastEventId != null;
+        sender.execute(() -> open(new Subscriber(emitter), resumeFrom, wantSnapshot));
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        synchronized (dirty) {
+            dirty.addAll(event.keys());
+            if (flushQueued || dirty.isEmpty()) return;
+            flushQueued = true;
+        }
+        sender.execute(this::flush);
+    }
+
+    @Scheduled(fixedDelayString = "${balances.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) return;
+        sender.execute(() -> {
+            for (Subscriber s : subscribers) {
+                try {
+                    s.emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException ex) {
+                    subscribers.remove(s);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        for (Subscriber s : subscribers) s.emitter.complete();
+        subscribers.clear();
+    }
+
+    // Runs on the sender thread, like every read of the dirty keys.
+    private void flush() {
+        List<BalanceKey> keys;
+        synchronized (dirty) {
+            keys = new ArrayList<>(dirty);
+            dirty.clear();
+            flushQueued = false;
+        }
+
+        List<BalanceChangeDto> changes;
+        try {
+            changes = balanceService.getChanges(keys);
+        } catch (RuntimeException e) {
+            // Keep the keys; the next committed change flushes them again.
+            synchronized (dirty) {
+                dirty.addAll(keys);
+            }
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(changes.size());
+        for (BalanceChangeDto c : changes) {
+            if (isOlder(bufferedVersions, c)) continue;
+            bufferedVersions.put(keyOf(c), c.version());
+            Entry e = new Entry(++seq, c);
+            buffer.addLast(e);
+            if (buffer.size() > bufferSize) buffer.removeFirst();
+            entries.add(e);
+        }
+
+        for (Subscriber s : subscribers) {
+            try {
+                for (Entry e : entries) send(s, e);
+            } catch (IOException | IllegalStateException ex) {
+                subscribers.remove(s);
+            }
+        }
+    }
+
+    // Runs on the sender thread: flushes after this task filter on lastSent, flushes
+    // that ran before it are covered by the replay or the snapshot.
+    private void open(Subscriber s, Long resumeFrom, boolean wantSnapshot) {
+        long head = seq;
+        List<Entry> replay = (resumeFrom == null) ? null : entriesAfter(resumeFrom);
+
+        try {
+            if (replay != null) {
+                s.lastSent = resumeFrom;
+                for (Entry e : replay) send(s, e);
+            } else {
+                s.lastSent = head;
+                if (wantSnapshot) {
+                    // Everything up to head was read before the snapshot and is in it;
+                    // later changes carry absolute amounts, so re-sending them is harmless.
+                    s.emitter.send(SseEmitter.event()
+                            .id(eventId(head))
+                            .name(SNAPSHOT_EVENT)
+                            .data(balanceService.searchDto(null, null), MediaType.APPLICATION_JSON));
+                }
+            }
+            subscribers.add(s);
+        } catch (IOException | IllegalStateException e) {
+            s.emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Buffered changes after {@code last}, or null when they cannot be replayed exactly.
+     */
+    private List<Entry> entriesAfter(long last) {
+        if (last > seq) return null;
+        long oldest = buffer.isEmpty() ? seq + 1 : buffer.peekFirst().seq();
+        if (last + 1 < oldest) return null;
+
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : buffer) {
+            if (e.seq() > last) out.add(e);
+        }
+        return out;
+    }
+
+    private Long parseSeq(String eventId) {
+        if (eventId == null) return null;
+        int dash = eventId.lastIndexOf('-');
+        if (dash < 0 || !eventId.substring(0, dash).equals(boot)) return null;
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void send(Subscriber s, Entry e) throws IOException {
+        if (e.seq() <= s.lastSent || isOlder(s.versions, e.change())) return;
+        s.emitter.send(SseEmitter.event()
+                .id(eventId(e.seq()))
+                .name(BALANCE_EVENT)
+                .data(e.change(), MediaType.APPLICATION_JSON));
+        s.lastSent = e.seq();
+        s.versions.put(keyOf(e.change()), e.change().version());
+    }
+
+    // Equal versions pass: shard increments change the amount but not the version.
+    private static boolean isOlder(Map<BalanceKey, Long> seen, BalanceChangeDto c) {
+        Long last = seen.get(keyOf(c));
+        return last != null && c.version() < last;
+    }
+
+    private static BalanceKey keyOf(BalanceChangeDto c) {
+        return new BalanceKey(c.resourceId(), c.unitId());
+    }
+
+    private String eventId(long n) {
+        return boot + "-" + n;
+    }
+}
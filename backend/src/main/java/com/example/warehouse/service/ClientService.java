@@ -1,6 +1,7 @@
 package com.example.warehouse.service;
 
 import com.example.warehouse.dto.ClientDto;
+import com.example.warehouse.dto.ReferenceDto;
 import com.example.warehouse.entity.Client;
 import com.example.warehouse.entity.EntityState;
 import com.example.warehouse.exception.BusinessException;
@@ -16,9 +17,12 @@ import java.util.List;
 public class ClientService {
 
     private final ClientRepository clientRepository;
+    private final ReferenceDataCache referenceDataCache;
 
-    public ClientService(ClientRepository clientRepository) {
+    public ClientService(ClientRepository clientRepository,
+                         ReferenceDataCache referenceDataCache) {
         this.clientRepository = clientRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Transactional(readOnly = true)
@@ -37,9 +41,8 @@ public class ClientService {
         return clientRepository.findByNameContainingIgnoreCaseAndState(normalizedQ, state);
     }
 
-    @Transactional(readOnly = true)
-    public List<Client> getAllActive() {
-        return clientRepository.findByState(EntityState.ACTIVE);
+    public List<ReferenceDto> getAllActive() {
+        return referenceDataCache.activeClients();
     }
 
     @Transactional(readOnly = true)
@@ -47,7 +50,6 @@ public class ClientService {
         return search(q, state).stream().map(this::toDto).toList();
     }
 
-    @Transactional(readOnly = true)
     public List<ClientDto> getAllActiveDto() {
         return getAllActive().stream().map(this::toDto).toList();
     }
@@ -79,6 +81,7 @@ public class ClientService {
         c.setState(EntityState.ACTIVE);
 
         Client saved = clientRepository.save(c);
+        referenceDataCache.recordChange(ReferenceDataCache.CLIENTS);
         return toDto(saved);
     }
 
@@ -102,6 +105,7 @@ public class ClientService {
         c.setAddress((address == null || address.isBlank()) ? null : address);
 
         Client saved = clientRepository.save(c);
+        referenceDataCache.recordChange(ReferenceDataCache.CLIENTS);
         return toDto(saved);
     }
 
@@ -111,6 +115,7 @@ public class ClientService {
                 .orElseThrow(() -> new NotFoundException("Client not found"));
         c.setState(state);
         Client saved = clientRepository.save(c);
+        referenceDataCache.recordChange(ReferenceDataCache.CLIENTS);
         return toDto(saved);
     }
 
@@ -119,6 +124,7 @@ public class ClientService {
         Client c = clientRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Client not found"));
         clientRepository.delete(c);
+        referenceDataCache.recordChange(ReferenceDataCache.CLIENTS);
     }
 
     private ClientDto toDto(Client c) {
@@ -129,4 +135,12 @@ public class ClientService {
         dto.setState(c.getState());
         return dto;
     }
+
+    private ClientDto toDto(ReferenceDto c) {
+        ClientDto dto = new ClientDto();
+        dto.setId(c.id());
+        dto.setName(c.name());
+        dto.setState(c.state());
+        return dto;
+    }
 }
\ No newline at end of file
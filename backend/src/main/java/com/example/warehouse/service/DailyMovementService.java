@@ -0,0 +1,98 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.BalanceCheckpointRepository;
+import com.example.warehouse.repository.DailyMovementRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the daily_movements rollup (per document date) in step with receipts and
+ * signed shipments. Quantities are signed: negative values undo earlier entries.
+ * Balance checkpoints on or after a changed day are dropped in the same transaction.
+ */
+@Service
+public class DailyMovementService {
+
+    private final DailyMovementRepository dailyMovementRepository;
+    private final BalanceCheckpointRepository checkpointRepository;
+
+    public DailyMovementService(DailyMovementRepository dailyMovementRepository,
+                                BalanceCheckpointRepository checkpointRepository) {
+        this.dailyMovementRepository = dailyMovementRepository;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    @Transactional
+    public void recordReceipt(LocalDate date, Map<BalanceKey, BigDecimal> qty) {
+        record(date, nonZero(qty), Map.of());
+    }
+
+    @Transactional
+    public void recordShipment(LocalDate date, Map<BalanceKey, BigDecimal> qty) {
+        record(date, Map.of(), nonZero(qty));
+    }
+
+    /**
+     * Moves a receipt's totals from its old date to its new one. Days are written in
+     * date order so two edits swapping dates cannot deadlock on each other's rows.
+     */
+    @Transactional
+    public void recordReceiptChange(LocalDate oldDate, Map<BalanceKey, BigDecimal> oldTotals,
+                                    LocalDate newDate, Map<BalanceKey, BigDecimal> newTotals) {
+        if (Objects.equals(oldDate, newDate)) {
+            Map<BalanceKey, BigDecimal> delta = new HashMap<>(newTotals);
+            oldTotals.forEach((k, q) -> delta.merge(k, q.negate(), BigDecimal::add));
+            recordReceipt(newDate, delta);
+            return;
+        }
+
+        Map<BalanceKey, BigDecimal> removed = new HashMap<>();
+        oldTotals.forEach((k, q) -> removed.put(k, q.negate()));
+
+        if (oldDate.isBefore(newDate)) {
+            recordReceipt(oldDate, removed);
+            recordReceipt(newDate, newTotals);
+        } else {
+            recordReceipt(newDate, newTotals);
+            recordReceipt(oldDate, removed);
+        }
+    }
+
+    /**
+     * Recomputes the rollup for [from, to] from the documents; open ends are unbounded.
+     */
+    @Transactional
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BusinessException("'from' must not be after 'to'");
+        }
+        int rows = dailyMovementRepository.rebuild(from, to);
+        checkpointRepository.invalidateFrom(from);
+        return rows;
+    }
+
+    // The rollup write comes first: it waits for a checkpoint being created, so the
+    // delete then sees that checkpoint.
+    private void record(LocalDate date, Map<BalanceKey, BigDecimal> qtyIn, Map<BalanceKey, BigDecimal> qtyOut) {
+        if (qtyIn.isEmpty() && qtyOut.isEmpty()) return;
+        dailyMovementRepository.apply(date, qtyIn, qtyOut);
+        checkpointRepository.invalidateFrom(date);
+    }
+
+    private static Map<BalanceKey, BigDecimal> nonZero(Map<BalanceKey, BigDecimal> qty) {
+        Map<BalanceKey, BigDecimal> m = new HashMap<>();
+        if (qty == null) return m;
+        qty.forEach((k, q) -> {
+            if (k != null && q != null && q.signum() != 0) m.put(k, q);
+        });
+        return m;
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.entity.DocumentType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sorted in-memory index of receipt and shipment numbers for prefix autocomplete.
+ * Numbers are unique ignoring case, so each index maps the lower-cased number to
+ * the stored one in a skip list; a top-N prefix lookup is one seek plus N steps.
+ * <p>
+ * Services report number changes with {@link #recordChange}; the index collects them
+ * per transaction, applies them after it commits and sends them over the
+ * {@link InvalidationBus} as one message, so other nodes apply the same changes. A batch
+ * too large for one {@code NOTIFY} is sent as "reload everything" instead. An index is
+ * loaded in the background on first use and on a bus resync; until then lookups go to
+ * the database. Lookups are counted in {@code warehouse.number.index.requests}
+ * ({@code result} hit/miss; failed background loads as {@code error}).
+ */
+@Component
+public class DocumentNumberIndex {
+
+    static final String CACHE_NAME = "numbers";
+    static final String REQUESTS_METRIC = "warehouse.number.index.requests";
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 1000;
+
+    // NOTIFY payloads must stay below 8000 bytes, including the bus's own prefix.
+    private static final int MAX_PAYLOAD_BYTES = 7000;
+
+    private record NumberChange(DocumentType type, String removed, String added) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InvalidationBus invalidationBus;
+    private final Map<DocumentType, Index> indexes = new EnumMap<>(DocumentType.class);
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    public DocumentNumberIndex(JdbcTemplate jdbcTemplate, InvalidationBus invalidationBus,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        indexes.put(DocumentType.RECEIPT, new Index("receipts", meterRegistry));
+        indexes.put(DocumentType.SHIPMENT, new Index("shipments", meterRegistry));
+    }
+
+    /**
+     * Up to {@code limit} numbers starting with {@code prefix} (ignoring case), in
+     * case-insensitive order. A blank prefix lists the first numbers.
+     */
+    public List<String> find(DocumentType type, String prefix, Integer limit) {
+        int max = (limit == null || limit <= 0) ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        String p = (prefix == null) ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        return index(type).find(p, max);
+    }
+
+    /**
+     * Records that a document number was removed and/or added ({@code null} for none)
+     * by the current transaction.
+     */
+    public void recordChange(DocumentType type, String removed, String added) {
+        if (removed != null && removed.equals(added)) return;
+        NumberChange change = new NumberChange(type, removed, added);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(List.of(change));
+            apply(List.of(change));
+            return;
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        batch.changes.add(change);
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (!event.covers(CACHE_NAME)) return;
+        List<NumberChange> changes = (event.key() == null) ? null : parse(event.key());
+        if (changes == null) {
+            // A resync, an oversized batch, or a message this version does not understand.
+            indexes.values().forEach(Index::scheduleReload);
+            return;
+        }
+        apply(changes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    private Index index(DocumentType type) {
+        Index index = indexes.get(type);
+        if (index == null) throw new IllegalArgumentException("No number index for " + type);
+        return index;
+    }
+
+    // One "<type>\t<removed>\t<added>" line per change.
+    private void publish(List<NumberChange> changes) {
+        StringBuilder payload = new StringBuilder();
+        for (NumberChange c : changes) {
+            if (!encodable(c.removed()) || !encodable(c.added())) {
+                invalidationBus.publish(CACHE_NAME, null);
+                return;
+            }
+            if (!payload.isEmpty()) payload.append('\n');
+            payload.append(c.type().name()).append('\t')
+                    .append(nullToEmpty(c.removed())).append('\t')
+                    .append(nullToEmpty(c.added()));
+        }
+        String key = payload.toString();
+        boolean fits = key.getBytes(StandardCharsets.UTF_8).length <= MAX_PAYLOAD_BYTES;
+        invalidationBus.publish(CACHE_NAME, fits ? key : null);
+    }
+
+    // Null when any line is malformed.
+    private List<NumberChange> parse(String key) {
+        List<NumberChange> changes = new ArrayList<>();
+        for (String line : key.split("\n", -1)) {
+            String[] parts = line.split("\t", -1);
+            DocumentType type = (parts.length == 3) ? typeOrNull(parts[0]) : null;
+            if (type == null) return null;
+            changes.add(new NumberChange(type, emptyToNull(parts[1]), emptyToNull(parts[2])));
+        }
+        return changes;
+    }
+
+    private void apply(List<NumberChange> changes) {
+        for (NumberChange c : changes) index(c.type()).apply(c.removed(), c.added());
+    }
+
+    private DocumentType typeOrNull(String name) {
+        for (DocumentType t : indexes.keySet()) {
+            if (t.name().equals(name)) return t;
+        }
+        return null;
+    }
+
+    private static boolean encodable(String number) {
+        return number == null || (number.indexOf('\t') < 0 && number.indexOf('\n') < 0);
+    }
+
+    private static String nullToEmpty(String s) {
+        return (s == null) ? "" : s;
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // The changes of one transaction: sent in a single NOTIFY just before commit, applied after it.
+    private final class Batch implements TransactionSynchronization {
+
+        final List<NumberChange> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            publish(changes);
+        }
+
+        @Override
+        public void afterCommit() {
+            apply(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DocumentNumberIndex.this);
+        }
+    }
+
+    private final class Index {
+
+        private record Change(String removed, String added) {}
+
+        private final String table;
+        private final AtomicBoolean reloadQueued = new AtomicBoolean();
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter errors;
+
+        // Lower-cased number -> stored number; null until the first load completes.
+        private volatile NavigableMap<String, String> numbers;
+        // Changes seen while a load is running, replayed onto its result. Guarded by this.
+        private List<Change> pending;
+
+        Index(String table, MeterRegistry meterRegistry) {
+            this.table = table;
+            this.hits = meterRegistry.counter(REQUESTS_METRIC, "type", table, "result", "hit");
+            this.misses = meterRegistry.counter(REQUESTS_METRIC, "type", table, "result", "miss");
+            this.errors = meterRegistry.counter(REQUESTS_METRIC, "type", table, "result", "error");
+        }
+
+        List<String> find(String prefix, int limit) {
+            NavigableMap<String, String> m = numbers;
+            if (m == null) {
+                misses.increment();
+                scheduleReload();
+                return jdbcTemplate.queryForList(
+                        "select number from " + table + " where lower(number) like ? escape '\\'"
+                                + " order by lower(number) limit ?",
+                        String.class, escapeLike(prefix) + "%", limit);
+            }
+
+            hits.increment();
+            List<String> result = new ArrayList<>(Math.min(limit, 64));
+            for (Map.Entry<String, String> e : m.tailMap(prefix, true).entrySet()) {
+                if (!e.getKey().startsWith(prefix) || result.size() == limit) break;
+                result.add(e.getValue());
+            }
+            return result;
+        }
+
+        synchronized void apply(String removed, String added) {
+            if (pending != null) pending.add(new Change(removed, added));
+            NavigableMap<String, String> m = numbers;
+            if (m != null) applyTo(m, removed, added);
+        }
+
+        void scheduleReload() {
+            if (reloadQueued.compareAndSet(false, true)) loader.execute(this::reload);
+        }
+
+        private void reload() {
+            reloadQueued.set(false);
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                NavigableMap<String, String> loaded = new ConcurrentSkipListMap<>();
+                for (String n : jdbcTemplate.queryForList("select number from " + table, String.class)) {
+                    loaded.put(n.toLowerCase(Locale.ROOT), n);
+                }
+                synchronized (this) {
+                    // Changes committed while loading may or may not be in the result; replaying is idempotent.
+                    for (Change c : pending) applyTo(loaded, c.removed(), c.added());
+                    numbers = loaded;
+                }
+            } catch (RuntimeException e) {
+                // Keep the previous state; the next lookup or resync queues another load.
+                errors.increment();
+            } finally {
+                synchronized (this) {
+                    pending = null;
+                }
+            }
+        }
+
+        private static void applyTo(NavigableMap<String, String> m, String removed, String added) {
+            if (removed != null) m.remove(removed.toLowerCase(Locale.ROOT));
+            if (added != null) m.put(added.toLowerCase(Locale.ROOT), added);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.warehouse.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Cache invalidation between backend instances over PostgreSQL {@code NOTIFY}
+ * ({@code invalidation-bus.enabled}). {@link #publish} issues {@code pg_notify} on the
+ * caller's transaction, so other nodes hear about a change only if and when it commits.
+ * Each node keeps one dedicated {@code LISTEN} connection outside the pool and turns
+ * messages from other nodes into {@link RemoteInvalidationEvent}s.
+ * <p>
+ * Off by default: PostgreSQL serializes the commits of all transactions that issued a
+ * {@code NOTIFY}, so a single-node deployment should not pay for it.
+ * <p>
+ * After every (re)connect the node publishes an "everything" event, because messages
+ * sent while it was not listening are lost.
+ * <p>
+ * Failures are counted in {@code warehouse.invalidation.errors}, tagged {@code stage}:
+ * {@code connect} (could not open or LISTEN), {@code listen} (connection lost) and
+ * {@code handler} (a local listener threw; the connection is kept). The gauge
+ * {@code warehouse.invalidation.connected} is 1 while the LISTEN connection is up.
+ */
+@Component
+public class InvalidationBus {
+
+    static final String MESSAGES_METRIC = "warehouse.invalidation.messages";
+    static final String ERRORS_METRIC = "warehouse.invalidation.errors";
+    static final String CONNECTED_METRIC = "warehouse.invalidation.connected";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final String channel;
+    private final int pollMs;
+    private final long reconnectMs;
+    private final Counter sent;
+    private final Counter received;
+    private final Counter connectErrors;
+    private final Counter listenErrors;
+    private final Counter handlerErrors;
+
+    // Payloads are "<node>|<cache>|<key>"; a node skips its own messages.
+    private final String node = UUID.randomUUID().toString().substring(0, 8);
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread listener;
+
+    public InvalidationBus(JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           DataSourceProperties dataSourceProperties,
+                           MeterRegistry meterRegistry,
+                           @Value("${invalidation-bus.enabled:false}") boolean enabled,
+                           @Value("${invalidation-bus.channel:warehouse_invalidation}") String channel,
+                           @Value("${invalidation-bus.poll-ms:500}") int pollMs,
+                           @Value("${invalidation-bus.reconnect-ms:2000}") long reconnectMs) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid invalidation-bus.channel: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.pollMs = Math.max(1, pollMs);
+        this.reconnectMs = Math.max(1, reconnectMs);
+        this.sent = meterRegistry.counter(MESSAGES_METRIC, "direction", "sent");
+        this.received = meterRegistry.counter(MESSAGES_METRIC, "direction", "received");
+        this.connectErrors = meterRegistry.counter(ERRORS_METRIC, "stage", "connect");
+        this.listenErrors = meterRegistry.counter(ERRORS_METRIC, "stage", "listen");
+        this.handlerErrors = meterRegistry.counter(ERRORS_METRIC, "stage", "handler");
+        Gauge.builder(CONNECTED_METRIC, this, b -> b.connected ? 1 : 0).register(meterRegistry);
+    }
+
+    /**
+     * Tells the other nodes that {@code key} of {@code cache} changed ({@code key} may be
+     * null for the whole cache). Call it inside the writing transaction.
+     */
+    public void publish(String cache, String key) {
+        if (!enabled) return;
+        String payload = node + "|" + cache + "|" + (key == null ? "" : key);
+        jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, channel, payload);
+        sent.increment();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        listener = Thread.ofVirtual().name("invalidation-bus").start(this::listen);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (listener != null) listener.interrupt();
+    }
+
+    /**
+     * Whether this node currently holds its LISTEN connection; always false when disabled.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void listen() {
+        while (running) {
+            Connection c = connect();
+            if (c == null) {
+                connectErrors.increment();
+                if (!pause()) return;
+                continue;
+            }
+
+            try (c) {
+                connected = true;
+                resync();
+                PGConnection pg = c.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollMs);
+                    if (notifications == null) continue;
+                    for (PGNotification n : notifications) dispatch(n.getParameter());
+                }
+            } catch (SQLException e) {
+                if (running) listenErrors.increment();
+            } finally {
+                connected = false;
+            }
+            if (!pause()) return;
+        }
+    }
+
+    // A LISTENing connection, or null when the database cannot be reached.
+    private Connection connect() {
+        Connection c = null;
+        try {
+            c = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+            try (Statement st = c.createStatement()) {
+                st.execute("LISTEN " + channel);
+            }
+            return c;
+        } catch (SQLException e) {
+            if (c != null) {
+                try {
+                    c.close();
+                } catch (SQLException ignored) {
+                    // Already broken.
+                }
+            }
+            return null;
+        }
+    }
+
+    private boolean pause() {
+        if (!running) return false;
+        try {
+            Thread.sleep(reconnectMs);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void resync() {
+        publishLocally(new RemoteInvalidationEvent(null, null));
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length < 3 || parts[0].equals(node)) return;
+        received.increment();
+        publishLocally(new RemoteInvalidationEvent(parts[1], parts[2].isEmpty() ? null : parts[2]));
+    }
+
+    // A failing cache must not tear down the connection the other caches depend on.
+    private void publishLocally(RemoteInvalidationEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            handlerErrors.increment();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.ReceiptDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in group commit for receipt creation ({@code receipts.group-commit.enabled}).
+ * Concurrent create calls are gathered for up to {@code window-ms} (or
+ * {@code max-batch} receipts) and written by {@link ReceiptService#createAll} in one
+ * transaction, so each hot balance key gets one merged update and the whole group
+ * shares one commit; all callers are released together when it completes.
+ * <p>
+ * A group fails as a whole, e.g. on a duplicate number. Its callers then retry alone
+ * on their own threads, so only the offending receipt reports the error.
+ */
+@Service
+public class ReceiptGroupCommitter {
+
+    private record Pending(ReceiptDto dto, CompletableFuture<ReceiptDto> result) {}
+
+    // Completes a pending create whose group failed: the caller retries on its own.
+    private static final ReceiptDto RETRY_ALONE = new ReceiptDto();
+
+    private final ReceiptService receiptService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public ReceiptGroupCommitter(ReceiptService receiptService,
+                                 @Value("${receipts.group-commit.enabled:false}") boolean enabled,
+                                 @Value("${receipts.group-commit.window-ms:2}") long windowMs,
+                                 @Value("${receipts.group-commit.max-batch:64}") int maxBatch) {
+        this.receiptService = receiptService;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.flusher = enabled ? Thread.ofVirtual().name("receipt-group-commit").start(this::run) : null;
+    }
+
+    /**
+     * Creates a receipt, through a group when enabled. Must not be called inside a
+     * transaction: the group commits in its own.
+     */
+    public ReceiptDto create(ReceiptDto dto) {
+        if (!enabled) return receiptService.create(dto);
+
+        Pending p = new Pending(dto, new CompletableFuture<>());
+        queue.add(p);
+
+        ReceiptDto created;
+        try {
+            created = p.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for receipt commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+        return (created == RETRY_ALONE) ? receiptService.create(dto) : created;
+    }
+
+    private void run() {
+        while (running) {
+            List<Pending> batch = new ArrayList<>(maxBatch);
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                batch.forEach(p -> p.result().complete(RETRY_ALONE));
+                break;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.size() == 1) {
+            // Nothing to share; let the caller run the plain path.
+            batch.get(0).result().complete(RETRY_ALONE);
+            return;
+        }
+
+        List<ReceiptDto> created;
+        try {
+            created = receiptService.createAll(batch.stream().map(Pending::dto).toList());
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().complete(RETRY_ALONE));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(created.get(i));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (flusher != null) flusher.interrupt();
+        Pending p;
+        while ((p = queue.poll()) != null) p.result().complete(RETRY_ALONE);
+    }
+}
@@ -1,14 +1,17 @@
 package com.example.warehouse.service;
 
+import com.example.warehouse.config.RetryOnConflict;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.CursorPage;
+import com.example.warehouse.dto.DocumentCursor;
 import com.example.warehouse.dto.ReceiptDto;
 import com.example.warehouse.dto.ReceiptItemDto;
 import com.example.warehouse.dto.ReceiptListItemDto;
 import com.example.warehouse.entity.*;
 import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.exception.ConflictException;
 import com.example.warehouse.exception.NotFoundException;
 import com.example.warehouse.repository.ReceiptRepository;
-import com.example.warehouse.repository.ResourceRepository;
-import com.example.warehouse.repository.UnitRepository;
 import com.example.warehouse.util.Normalize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,19 +24,25 @@ import java.util.stream.Collectors;
 @Service
 public class ReceiptService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final ReceiptRepository receiptRepository;
-    private final ResourceRepository resourceRepository;
-    private final UnitRepository unitRepository;
+    private final ReferenceResolver referenceResolver;
     private final BalanceService balanceService;
+    private final DailyMovementService dailyMovementService;
+    private final DocumentNumberIndex documentNumberIndex;
 
     public ReceiptService(ReceiptRepository receiptRepository,
-                          ResourceRepository resourceRepository,
-                          UnitRepository unitRepository,
-                          BalanceService balanceService) {
+                          ReferenceResolver referenceResolver,
+                          BalanceService balanceService,
+                          DailyMovementService dailyMovementService,
+                          DocumentNumberIndex documentNumberIndex) {
         this.receiptRepository = receiptRepository;
-        this.resourceRepository = resourceRepository;
-        this.unitRepository = unitRepository;
+        this.referenceResolver = referenceResolver;
         this.balanceService = balanceService;
+        this.dailyMovementService = dailyMovementService;
+        this.documentNumberIndex = documentNumberIndex;
     }
 
     @Transactional(readOnly = true)
@@ -44,16 +53,8 @@ public class ReceiptService {
         return dto;
     }
 
-    @Transactional(readOnly = true)
-    public List<String> getAllNumbers() {
-        return receiptRepository.findAll().stream()
-                .map(Receipt::getNumber)
-                .filter(Objects::nonNull)
-                .map(String::trim)
-                .filter(s -> !s.isBlank())
-                .distinct()
-                .sorted()
-                .toList();
+    public List<String> findNumbers(String prefix, Integer limit) {
+        return documentNumberIndex.find(DocumentType.RECEIPT, prefix, limit);
     }
 
     @Transactional(readOnly = true)
@@ -64,81 +65,101 @@ public class ReceiptService {
     }
 
     @Transactional(readOnly = true)
-    public List<ReceiptListItemDto> searchListDto(LocalDate from, LocalDate to,
-                                                  List<String> numbers,
-                                                  List<Long> resourceIds,
-                                                  List<Long> unitIds) {
+    public CursorPage<ReceiptListItemDto> searchPage(LocalDate from, LocalDate to,
+                                                     List<String> numbers,
+                                                     List<Long> resourceIds,
+                                                     List<Long> unitIds,
+                                                     String cursor,
+                                                     Integer limit) {
 
-        List<Receipt> base = receiptRepository.findAllWithItems();
+        int pageSize = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
 
-        base = applyFilters(base, from, to, numbers, resourceIds, unitIds);
+        Set<String> numberSet = (numbers == null) ? Set.of() : numbers.stream()
+                .filter(Objects::nonNull)
+                .map(s -> s.trim().toLowerCase())
+                .filter(s -> !s.isBlank())
+                .collect(Collectors.toSet());
+
+        List<DocumentCursor> keys = receiptRepository.searchKeys(
+                from, to, numberSet,
+                (resourceIds == null) ? Set.of() : new HashSet<>(resourceIds),
+                (unitIds == null) ? Set.of() : new HashSet<>(unitIds),
+                DocumentCursor.parse(cursor),
+                pageSize + 1
+        );
 
-        return base.stream()
-                .map(this::toListItemDtoWithItems)
-                .toList();
-    }
+        boolean hasMore = keys.size() > pageSize;
+        if (hasMore) keys = keys.subList(0, pageSize);
+        if (keys.isEmpty()) return new CursorPage<>(List.of(), null);
 
-    @Transactional(readOnly = true)
-    public List<Receipt> search(LocalDate from, LocalDate to,
-                                List<String> numbers,
-                                List<Long> resourceIds,
-                                List<Long> unitIds) {
+        // The cursor comes from the keys: a receipt deleted since they were read is
+        // skipped below, and must not pull the cursor back to an earlier row.
+        String next = hasMore ? keys.get(keys.size() - 1).encode() : null;
+
+        List<Long> ids = keys.stream().map(DocumentCursor::id).toList();
+        Map<Long, Receipt> byId = new HashMap<>();
+        for (Receipt r : receiptRepository.findAllWithItemsByIdIn(ids)) {
+            byId.put(r.getId(), r);
+        }
 
-        List<Receipt> base = receiptRepository.findAllWithItems();
-        return applyFilters(base, from, to, numbers, resourceIds, unitIds);
+        List<ReceiptListItemDto> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Receipt r = byId.get(id);
+            if (r != null) items.add(toListItemDtoWithItems(r));
+        }
+        return new CursorPage<>(items, next);
     }
 
-    private List<Receipt> applyFilters(List<Receipt> base,
-                                       LocalDate from, LocalDate to,
-                                       List<String> numbers,
-                                       List<Long> resourceIds,
-                                       List<Long> unitIds) {
+    @Transactional
+    @RetryOnConflict
+    public ReceiptDto create(ReceiptDto dto) {
+        Receipt saved = receiptRepository.save(buildNew(dto));
+        documentNumberIndex.recordChange(DocumentType.RECEIPT, null, saved.getNumber());
 
-        if (from != null) {
-            base = base.stream()
-                    .filter(r -> r.getDate() != null && !r.getDate().isBefore(from))
-                    .toList();
-        }
-        if (to != null) {
-            base = base.stream()
-                    .filter(r -> r.getDate() != null && !r.getDate().isAfter(to))
-                    .toList();
-        }
+        Map<BalanceKey, BigDecimal> totals = aggregateReceiptItems(saved.getItems());
+        balanceService.applyDeltas(DocumentType.RECEIPT, saved.getId(), totals);
+        dailyMovementService.recordReceipt(saved.getDate(), totals);
 
-        if (numbers != null && !numbers.isEmpty()) {
-            Set<String> set = numbers.stream()
-                    .filter(Objects::nonNull)
-                    .map(s -> s.trim().toLowerCase())
-                    .filter(s -> !s.isBlank())
-                    .collect(Collectors.toSet());
+        return toDto(saved);
+    }
 
-            base = base.stream()
-                    .filter(r -> r.getNumber() != null && set.contains(r.getNumber().toLowerCase()))
-                    .toList();
+    /**
+     * Creates several receipts in one transaction: all documents, their ledger rows and
+     * one merged balance change per key commit together, or nothing does. Results are
+     * in input order.
+     */
+    @Transactional
+    @RetryOnConflict
+    public List<ReceiptDto> createAll(List<ReceiptDto> dtos) {
+        if (dtos == null || dtos.isEmpty()) return List.of();
+
+        Set<String> numbers = new HashSet<>();
+        List<Receipt> receipts = new ArrayList<>(dtos.size());
+        for (ReceiptDto dto : dtos) {
+            Receipt r = buildNew(dto);
+            if (!numbers.add(r.getNumber().toLowerCase())) {
+                throw new BusinessException("Receipt with this number already exists");
+            }
+            receipts.add(r);
         }
-
-        if ((resourceIds != null && !resourceIds.isEmpty()) || (unitIds != null && !unitIds.isEmpty())) {
-            Set<Long> resSet = (resourceIds == null) ? Set.of() : new HashSet<>(resourceIds);
-            Set<Long> unitSet = (unitIds == null) ? Set.of() : new HashSet<>(unitIds);
-
-            base = base.stream()
-                    .filter(r -> {
-                        List<ReceiptItem> its = r.getItems();
-                        if (its == null || its.isEmpty()) return false;
-                        return its.stream().anyMatch(i -> {
-                            boolean rOk = resSet.isEmpty() || (i.getResource() != null && resSet.contains(i.getResource().getId()));
-                            boolean uOk = unitSet.isEmpty() || (i.getUnit() != null && unitSet.contains(i.getUnit().getId()));
-                            return rOk && uOk;
-                        });
-                    })
-                    .toList();
+        List<Receipt> saved = receiptRepository.saveAll(receipts);
+        saved.forEach(r -> documentNumberIndex.recordChange(DocumentType.RECEIPT, null, r.getNumber()));
+
+        Map<Long, Map<BalanceKey, BigDecimal>> byDoc = new LinkedHashMap<>();
+        SortedMap<LocalDate, Map<BalanceKey, BigDecimal>> byDate = new TreeMap<>();
+        for (Receipt r : saved) {
+            Map<BalanceKey, BigDecimal> totals = aggregateReceiptItems(r.getItems());
+            byDoc.put(r.getId(), totals);
+            Map<BalanceKey, BigDecimal> day = byDate.computeIfAbsent(r.getDate(), d -> new HashMap<>());
+            totals.forEach((k, q) -> day.merge(k, q, BigDecimal::add));
         }
+        balanceService.applyDocumentDeltas(DocumentType.RECEIPT, byDoc);
+        byDate.forEach(dailyMovementService::recordReceipt);
 
-        return base;
+        return saved.stream().map(this::toDto).toList();
     }
 
-    @Transactional
-    public ReceiptDto create(ReceiptDto dto) {
+    private Receipt buildNew(ReceiptDto dto) {
         validateReceiptDto(dto);
 
         String number = Normalize.normalize(dto.getNumber());
@@ -153,32 +174,20 @@ public class ReceiptService {
                 .date(date)
                 .build();
 
-        List<ReceiptItem> items = mapReceiptItems(dto.getItems(), receipt);
-        receipt.setItems(items);
-
-        Receipt saved = receiptRepository.save(receipt);
-
-        if (items != null) {
-            for (ReceiptItem it : items) {
-                balanceService.add(it.getResource(), it.getUnit(), it.getQuantity());
-            }
-        }
-
-        return toDto(saved);
-    }
-
-    @Transactional
-    public ReceiptDto updateAndReturn(Long id, ReceiptDto dto) {
-        update(id, dto);
-        return getById(id);
+        receipt.setItems(mapReceiptItems(dto.getItems(), receipt));
+        return receipt;
     }
 
     @Transactional
+    @RetryOnConflict
     public void update(Long id, ReceiptDto dto) {
         validateReceiptDto(dto);
 
-        Receipt existing = receiptRepository.findById(id)
+        Receipt existing = receiptRepository.findForUpdateById(id)
                 .orElseThrow(() -> new NotFoundException("Receipt not found"));
+        if (dto.getVersion() != null && !dto.getVersion().equals(existing.getVersion())) {
+            throw new ConflictException("Receipt was changed by someone else, reload it and try again");
+        }
 
         String number = Normalize.normalize(dto.getNumber());
         if (existing.getNumber() != null
@@ -189,83 +198,77 @@ public class ReceiptService {
 
         LocalDate date = (dto.getDate() == null) ? existing.getDate() : dto.getDate();
 
-        Map<RuKey, BigDecimal> oldTotals = aggregateReceiptItems(existing.getItems());
+        Map<BalanceKey, BigDecimal> oldTotals = aggregateReceiptItems(existing.getItems());
         List<ReceiptItem> newItems = mapReceiptItems(dto.getItems(), existing);
-        Map<RuKey, BigDecimal> newTotals = aggregateReceiptItems(newItems);
+        Map<BalanceKey, BigDecimal> newTotals = aggregateReceiptItems(newItems);
 
-        Map<RuKey, BigDecimal> delta = new HashMap<>();
-        Set<RuKey> allKeys = new HashSet<>();
-        allKeys.addAll(oldTotals.keySet());
-        allKeys.addAll(newTotals.keySet());
+        Map<BalanceKey, BigDecimal> delta = totalsDelta(oldTotals, newTotals);
 
-        for (RuKey k : allKeys) {
-            BigDecimal oldQ = oldTotals.getOrDefault(k, BigDecimal.ZERO);
-            BigDecimal newQ = newTotals.getOrDefault(k, BigDecimal.ZERO);
-            BigDecimal d = newQ.subtract(oldQ);
-            if (d.signum() != 0) delta.put(k, d);
-        }
+        List<BalanceKey> decreasing = delta.entrySet().stream()
+                .filter(e -> e.getValue().signum() < 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<BalanceKey, BigDecimal> amounts = balanceService.getAvailable(decreasing);
 
-        for (Map.Entry<RuKey, BigDecimal> e : delta.entrySet()) {
+        for (Map.Entry<BalanceKey, BigDecimal> e : delta.entrySet()) {
             BigDecimal d = e.getValue();
             if (d.signum() < 0) {
-                RuKey k = e.getKey();
+                BalanceKey k = e.getKey();
                 BigDecimal needSubtract = d.abs();
-                BigDecimal current = getBalanceAmountOrZero(k.resourceId, k.unitId);
+                BigDecimal current = amounts.getOrDefault(k, BigDecimal.ZERO);
                 if (current.subtract(needSubtract).signum() < 0) {
                     throw new BusinessException(
                             "Not enough stock to update receipt. Resource/unit would go negative: resourceId="
-                                    + k.resourceId + ", unitId=" + k.unitId
+                                    + k.resourceId() + ", unitId=" + k.unitId()
                     );
                 }
             }
         }
 
-        for (Map.Entry<RuKey, BigDecimal> e : delta.entrySet()) {
-            BigDecimal d = e.getValue();
-            RuKey k = e.getKey();
-
-            Resource res = resourceRepository.findById(k.resourceId)
-                    .orElseThrow(() -> new BusinessException("Resource not found"));
-            Unit unit = unitRepository.findById(k.unitId)
-                    .orElseThrow(() -> new BusinessException("Unit not found"));
-
-            if (d.signum() < 0) balanceService.subtract(res, unit, d.abs());
-            if (d.signum() > 0) balanceService.add(res, unit, d);
-        }
+        balanceService.applyDeltas(DocumentType.RECEIPT, existing.getId(), delta);
+        dailyMovementService.recordReceiptChange(existing.getDate(), oldTotals, date, newTotals);
 
+        documentNumberIndex.recordChange(DocumentType.RECEIPT, existing.getNumber(), number);
         existing.setNumber(number);
         existing.setDate(date);
+
+        // Orphan deletes are flushed after inserts, so drop the old lines first
+        // to keep uq_receipt_item from rejecting lines that stay on the document.
+        existing.setItems(null);
+        receiptRepository.flush();
         existing.setItems(newItems);
 
         receiptRepository.save(existing);
     }
 
     @Transactional
+    @RetryOnConflict
     public void delete(Long id) {
         Receipt existing = receiptRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Receipt not found"));
 
-        Map<RuKey, BigDecimal> totals = aggregateReceiptItems(existing.getItems());
+        Map<BalanceKey, BigDecimal> totals = aggregateReceiptItems(existing.getItems());
+        Map<BalanceKey, BigDecimal> amounts = balanceService.getAvailable(totals.keySet());
 
-        for (Map.Entry<RuKey, BigDecimal> e : totals.entrySet()) {
-            RuKey k = e.getKey();
+        for (Map.Entry<BalanceKey, BigDecimal> e : totals.entrySet()) {
+            BalanceKey k = e.getKey();
             BigDecimal needSubtract = e.getValue();
-            BigDecimal current = getBalanceAmountOrZero(k.resourceId, k.unitId);
+            BigDecimal current = amounts.getOrDefault(k, BigDecimal.ZERO);
             if (current.subtract(needSubtract).signum() < 0) {
                 throw new BusinessException(
                         "Not enough stock to delete receipt. Resource/unit would go negative: resourceId="
-                                + k.resourceId + ", unitId=" + k.unitId
+                                + k.resourceId() + ", unitId=" + k.unitId()
                 );
             }
         }
 
-        if (existing.getItems() != null) {
-            for (ReceiptItem old : existing.getItems()) {
-                balanceService.subtract(old.getResource(), old.getUnit(), old.getQuantity());
-            }
-        }
+        Map<BalanceKey, BigDecimal> delta = new HashMap<>();
+        totals.forEach((k, q) -> delta.put(k, q.negate()));
+        balanceService.applyDeltas(DocumentType.RECEIPT, existing.getId(), delta);
+        dailyMovementService.recordReceipt(existing.getDate(), delta);
 
         receiptRepository.delete(existing);
+        documentNumberIndex.recordChange(DocumentType.RECEIPT, existing.getNumber(), null);
     }
 
     private void validateReceiptDto(ReceiptDto dto) {
@@ -279,7 +282,9 @@ public class ReceiptService {
     private List<ReceiptItem> mapReceiptItems(List<ReceiptItemDto> itemDtos, Receipt receipt) {
         if (itemDtos == null) return new ArrayList<>();
 
-        List<ReceiptItem> items = new ArrayList<>();
+        List<ReceiptItemDto> lines = new ArrayList<>();
+        List<Long> resourceIds = new ArrayList<>();
+        List<Long> unitIds = new ArrayList<>();
         for (ReceiptItemDto d : itemDtos) {
             if (d == null) continue;
 
@@ -289,18 +294,19 @@ public class ReceiptService {
                 throw new BusinessException("Quantity must be > 0");
             }
 
-            Resource res = resourceRepository.findById(d.getResourceId())
-                    .orElseThrow(() -> new BusinessException("Resource not found"));
-            Unit unit = unitRepository.findById(d.getUnitId())
-                    .orElseThrow(() -> new BusinessException("Unit not found"));
+            lines.add(d);
+            resourceIds.add(d.getResourceId());
+            unitIds.add(d.getUnitId());
+        }
 
-            if (res.getState() == EntityState.ARCHIVED) throw new BusinessException("Resource is archived");
-            if (unit.getState() == EntityState.ARCHIVED) throw new BusinessException("Unit is archived");
+        ReferenceResolver.References refs = referenceResolver.resolveActive(resourceIds, unitIds);
 
+        List<ReceiptItem> items = new ArrayList<>(lines.size());
+        for (ReceiptItemDto d : lines) {
             items.add(ReceiptItem.builder()
                     .receipt(receipt)
-                    .resource(res)
-                    .unit(unit)
+                    .resource(refs.resource(d.getResourceId()))
+                    .unit(refs.unit(d.getUnitId()))
                     .quantity(d.getQuantity())
                     .build());
         }
@@ -308,8 +314,24 @@ public class ReceiptService {
         return items;
     }
 
-    private Map<RuKey, BigDecimal> aggregateReceiptItems(List<ReceiptItem> items) {
-        Map<RuKey, BigDecimal> m = new HashMap<>();
+    Map<BalanceKey, BigDecimal> totalsDelta(Map<BalanceKey, BigDecimal> oldTotals,
+                                            Map<BalanceKey, BigDecimal> newTotals) {
+        Map<BalanceKey, BigDecimal> delta = new HashMap<>();
+        Set<BalanceKey> allKeys = new HashSet<>();
+        allKeys.addAll(oldTotals.keySet());
+        allKeys.addAll(newTotals.keySet());
+
+        for (BalanceKey k : allKeys) {
+            BigDecimal oldQ = oldTotals.getOrDefault(k, BigDecimal.ZERO);
+            BigDecimal newQ = newTotals.getOrDefault(k, BigDecimal.ZERO);
+            BigDecimal d = newQ.subtract(oldQ);
+            if (d.signum() != 0) delta.put(k, d);
+        }
+        return delta;
+    }
+
+    Map<BalanceKey, BigDecimal> aggregateReceiptItems(List<ReceiptItem> items) {
+        Map<BalanceKey, BigDecimal> m = new HashMap<>();
         if (items == null) return m;
 
         for (ReceiptItem it : items) {
@@ -318,7 +340,7 @@ public class ReceiptService {
             Long uid = it.getUnit().getId();
             if (rid == null || uid == null) continue;
 
-            RuKey k = new RuKey(rid, uid);
+            BalanceKey k = new BalanceKey(rid, uid);
             m.merge(k, it.getQuantity(), BigDecimal::add);
         }
 
@@ -326,22 +348,10 @@ public class ReceiptService {
         return m;
     }
 
-    private BigDecimal getBalanceAmountOrZero(Long resourceId, Long unitId) {
-        if (resourceId == null || unitId == null) return BigDecimal.ZERO;
-
-        List<Balance> list = balanceService.search(
-                Collections.singletonList(resourceId),
-                Collections.singletonList(unitId)
-        );
-        if (list == null || list.isEmpty()) return BigDecimal.ZERO;
-
-        Balance b = list.get(0);
-        return (b.getAmount() == null) ? BigDecimal.ZERO : b.getAmount();
-    }
-
-    private ReceiptDto toDto(Receipt r) {
+    ReceiptDto toDto(Receipt r) {
         ReceiptDto dto = new ReceiptDto();
         dto.setId(r.getId());
+        dto.setVersion(r.getVersion());
         dto.setNumber(r.getNumber());
         dto.setDate(r.getDate());
 
@@ -360,7 +370,7 @@ public class ReceiptService {
         return dto;
     }
 
-    private ReceiptListItemDto toListItemDtoWithItems(Receipt r) {
+    ReceiptListItemDto toListItemDtoWithItems(Receipt r) {
         ReceiptListItemDto dto = new ReceiptListItemDto();
         dto.setId(r.getId());
         dto.setNumber(r.getNumber());
@@ -387,27 +397,4 @@ public class ReceiptService {
         dto.setItems(list);
         return dto;
     }
-
-    private static final class RuKey {
-        private final Long resourceId;
-        private final Long unitId;
-
-        private RuKey(Long resourceId, Long unitId) {
-            this.resourceId = resourceId;
-            this.unitId = unitId;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof RuKey)) return false;
-            RuKey ruKey = (RuKey) o;
-            return Objects.equals(resourceId, ruKey.resourceId) && Objects.equals(unitId, ruKey.unitId);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(resourceId, unitId);
-        }
-    }
-}
\ No newline at end of file
+}
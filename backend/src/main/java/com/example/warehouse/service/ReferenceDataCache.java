@@ -0,0 +1,289 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.ReferenceDto;
+import com.example.warehouse.entity.Client;
+import com.example.warehouse.entity.EntityState;
+import com.example.warehouse.entity.Resource;
+import com.example.warehouse.entity.Unit;
+import com.example.warehouse.repository.ClientRepository;
+import com.example.warehouse.repository.ResourceRepository;
+import com.example.warehouse.repository.UnitRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copies of the resource, unit and client catalogs for form lists and
+ * document line lookups. Each catalog is an immutable snapshot of {@link ReferenceDto}
+ * copies (never live entities, which belong to the session that loaded them), tagged
+ * with the generation it was loaded for; {@link #recordChange} bumps the generation
+ * once inside the writing transaction (readers go to the database from then on) and
+ * once after it completes, when a reload is queued on a background thread. A snapshot
+ * older than the current generation is never served. Changes are also sent over the
+ * {@link InvalidationBus}, and other nodes reload the same way.
+ * <p>
+ * {@code reference-cache.max-entries} is a cliff, not a bound: a catalog with more rows
+ * is not cached at all (its snapshot only records the generation) and every read of it
+ * goes to the database, one query per call. Size it above the largest catalog you
+ * expect. Lookups are counted in {@code warehouse.reference.cache.requests}
+ * ({@code result} hit/miss; failed background loads as {@code error}) and snapshot
+ * sizes are exposed as {@code warehouse.reference.cache.size}.
+ */
+@Component
+public class ReferenceDataCache {
+
+    public static final String RESOURCES = "resources";
+    public static final String UNITS = "units";
+    public static final String CLIENTS = "clients";
+
+    static final String CACHE_NAME = "reference";
+    static final String REQUESTS_METRIC = "warehouse.reference.cache.requests";
+    static final String SIZE_METRIC = "warehouse.reference.cache.size";
+
+    // byId and active are null when the catalog was too large to keep.
+    private record Snapshot(long generation, Map<Long, ReferenceDto> byId,
+                            List<ReferenceDto> active) {
+        boolean kept() {
+            return byId != null;
+        }
+    }
+
+    private final Catalog<Resource> resources;
+    private final Catalog<Unit> units;
+    private final Catalog<Client> clients;
+
+    private final InvalidationBus invalidationBus;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxEntries;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    public ReferenceDataCache(ResourceRepository resourceRepository,
+                              UnitRepository unitRepository,
+                              ClientRepository clientRepository,
+                              InvalidationBus invalidationBus,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${reference-cache.max-entries:50000}") int maxEntries) {
+        this.invalidationBus = invalidationBus;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxEntries = maxEntries;
+
+        this.resources = new Catalog<>(RESOURCES, resourceRepository,
+                r -> new ReferenceDto(r.getId(), r.getName(), r.getState()),
+                () -> resourceRepository.findAllByState(EntityState.ACTIVE), meterRegistry);
+        this.units = new Catalog<>(UNITS, unitRepository,
+                u -> new ReferenceDto(u.getId(), u.getName(), u.getState()),
+                () -> unitRepository.findAllByState(EntityState.ACTIVE), meterRegistry);
+        this.clients = new Catalog<>(CLIENTS, clientRepository,
+                c -> new ReferenceDto(c.getId(), c.getName(), c.getState()),
+                () -> clientRepository.findByState(EntityState.ACTIVE), meterRegistry);
+    }
+
+    public List<ReferenceDto> activeResources() {
+        return resources.active();
+    }
+
+    public List<ReferenceDto> activeUnits() {
+        return units.active();
+    }
+
+    public List<ReferenceDto> activeClients() {
+        return clients.active();
+    }
+
+    /**
+     * Resources by id; ids that do not exist are absent from the map.
+     */
+    public Map<Long, ReferenceDto> resources(Collection<Long> ids) {
+        return resources.byIds(ids);
+    }
+
+    public Map<Long, ReferenceDto> units(Collection<Long> ids) {
+        return units.byIds(ids);
+    }
+
+    public Optional<ReferenceDto> resource(Long id) {
+        return Optional.ofNullable(resources.byIds(List.of(id)).get(id));
+    }
+
+    public Optional<ReferenceDto> client(Long id) {
+        return Optional.ofNullable(clients.byIds(List.of(id)).get(id));
+    }
+
+    /**
+     * Records that the current transaction changed {@code catalog} ({@link #RESOURCES},
+     * {@link #UNITS} or {@link #CLIENTS}). Call it right after the repository write.
+     */
+    public void recordChange(String catalog) {
+        Catalog<?> c = catalog(catalog);
+        c.invalidate();
+        invalidationBus.publish(CACHE_NAME, catalog);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    c.invalidate();
+                    c.scheduleReload();
+                }
+            });
+        } else {
+            c.invalidate();
+            c.scheduleReload();
+        }
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (!event.covers(CACHE_NAME)) return;
+        // Unknown keys (e.g. from a newer node during a rolling deploy) reload everything.
+        boolean one = RESOURCES.equals(event.key())
+                || UNITS.equals(event.key())
+                || CLIENTS.equals(event.key());
+        List<Catalog<?>> targets = one ? List.of(catalog(event.key())) : List.of(resources, units, clients);
+        for (Catalog<?> c : targets) {
+            c.invalidate();
+            c.scheduleReload();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    private Catalog<?> catalog(String name) {
+        return switch (name) {
+            case RESOURCES -> resources;
+            case UNITS -> units;
+            case CLIENTS -> clients;
+            default -> throw new IllegalArgumentException("Unknown catalog: " + name);
+        };
+    }
+
+    private final class Catalog<T> {
+
+        private final JpaRepository<T, Long> repository;
+        private final Function<T, ReferenceDto> copyOf;
+        private final Supplier<List<T>> activeFromDb;
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter errors;
+
+        // Starts ahead of the empty snapshot, so the first read queues the initial load.
+        private final AtomicLong generation = new AtomicLong(1);
+        private final AtomicBoolean reloadQueued = new AtomicBoolean();
+        private volatile Snapshot snapshot = new Snapshot(0, Map.of(), List.of());
+
+        Catalog(String name, JpaRepository<T, Long> repository, Function<T, ReferenceDto> copyOf,
+                Supplier<List<T>> activeFromDb, MeterRegistry meterRegistry) {
+            this.repository = repository;
+            this.copyOf = copyOf;
+            this.activeFromDb = activeFromDb;
+            this.hits = meterRegistry.counter(REQUESTS_METRIC, "catalog", name, "result", "hit");
+            this.misses = meterRegistry.counter(REQUESTS_METRIC, "catalog", name, "result", "miss");
+            this.errors = meterRegistry.counter(REQUESTS_METRIC, "catalog", name, "result", "error");
+            Gauge.builder(SIZE_METRIC, this, c -> c.size())
+                    .tag("catalog", name)
+                    .register(meterRegistry);
+        }
+
+        List<ReferenceDto> active() {
+            Snapshot s = current();
+            if (s != null && s.kept()) {
+                hits.increment();
+                return s.active();
+            }
+            misses.increment();
+            return activeFromDb.get().stream().map(copyOf).toList();
+        }
+
+        Map<Long, ReferenceDto> byIds(Collection<Long> ids) {
+            Set<Long> wanted = new HashSet<>();
+            for (Long id : ids) {
+                if (id != null) wanted.add(id);
+            }
+            if (wanted.isEmpty()) return Map.of();
+
+            Snapshot s = current();
+            if (s != null && s.kept() && s.byId().keySet().containsAll(wanted)) {
+                hits.increment();
+                Map<Long, ReferenceDto> found = new HashMap<>();
+                for (Long id : wanted) found.put(id, s.byId().get(id));
+                return found;
+            }
+
+            // Stale snapshot or an unknown id (e.g. a typo or a row another instance just wrote).
+            misses.increment();
+            Map<Long, ReferenceDto> found = new HashMap<>();
+            for (T e : repository.findAllById(wanted)) {
+                ReferenceDto copy = copyOf.apply(e);
+                found.put(copy.id(), copy);
+            }
+            return found;
+        }
+
+        private Snapshot current() {
+            Snapshot s = snapshot;
+            if (s.generation() == generation.get()) return s;
+            scheduleReload();
+            return null;
+        }
+
+        double size() {
+            Snapshot s = snapshot;
+            return s.kept() ? s.byId().size() : 0;
+        }
+
+        void invalidate() {
+            generation.incrementAndGet();
+        }
+
+        void scheduleReload() {
+            if (reloadQueued.compareAndSet(false, true)) loader.execute(this::reload);
+        }
+
+        // Runs on the single loader thread, so snapshots are installed in generation order.
+        private void reload() {
+            reloadQueued.set(false);
+            long gen = generation.get();
+            try {
+                snapshot = readOnlyTx.execute(status -> load(gen));
+            } catch (RuntimeException e) {
+                // Keep serving from the database; the next read queues another attempt.
+                errors.increment();
+            }
+        }
+
+        private Snapshot load(long gen) {
+            if (repository.count() > maxEntries) return new Snapshot(gen, null, null);
+
+            Map<Long, ReferenceDto> byId = new LinkedHashMap<>();
+            List<ReferenceDto> active = new ArrayList<>();
+            for (T e : repository.findAll()) {
+                ReferenceDto copy = copyOf.apply(e);
+                byId.put(copy.id(), copy);
+                if (copy.state() == EntityState.ACTIVE) active.add(copy);
+            }
+            return new Snapshot(gen, Collections.unmodifiableMap(byId), List.copyOf(active));
+        }
+    }
+}
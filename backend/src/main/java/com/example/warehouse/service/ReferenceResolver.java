@@ -0,0 +1,103 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.ReferenceDto;
+import com.example.warehouse.entity.EntityState;
+import com.example.warehouse.entity.Resource;
+import com.example.warehouse.entity.Unit;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.ResourceRepository;
+import com.example.warehouse.repository.UnitRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Resolves the resources and units referenced by document lines from the
+ * {@link ReferenceDataCache} (one {@code findAllById} per type when it cannot answer)
+ * and checks them all in a single pass. Lines are attached to the checked ids with
+ * {@code getReferenceById}, so no cached object ends up in a session.
+ */
+@Component
+public class ReferenceResolver {
+
+    private final ReferenceDataCache referenceDataCache;
+    private final ResourceRepository resourceRepository;
+    private final UnitRepository unitRepository;
+
+    public ReferenceResolver(ReferenceDataCache referenceDataCache,
+                             ResourceRepository resourceRepository,
+                             UnitRepository unitRepository) {
+        this.referenceDataCache = referenceDataCache;
+        this.resourceRepository = resourceRepository;
+        this.unitRepository = unitRepository;
+    }
+
+    /**
+     * Loads every distinct id once. Throws a single {@link BusinessException} listing
+     * all missing and archived references.
+     */
+    public References resolveActive(Collection<Long> resourceIds, Collection<Long> unitIds) {
+        Set<Long> rids = distinct(resourceIds);
+        Map<Long, ReferenceDto> resources = referenceDataCache.resources(rids);
+
+        Set<Long> uids = distinct(unitIds);
+        Map<Long, ReferenceDto> units = referenceDataCache.units(uids);
+
+        List<String> problems = new ArrayList<>();
+
+        List<Long> missingResources = rids.stream().filter(id -> !resources.containsKey(id)).sorted().toList();
+        if (!missingResources.isEmpty()) problems.add("Resource not found: " + missingResources);
+
+        List<String> archivedResources = resources.values().stream()
+                .filter(r -> r.state() == EntityState.ARCHIVED)
+                .map(ReferenceDto::name)
+                .sorted()
+                .toList();
+        if (!archivedResources.isEmpty()) problems.add("Resource is archived: " + archivedResources);
+
+        List<Long> missingUnits = uids.stream().filter(id -> !units.containsKey(id)).sorted().toList();
+        if (!missingUnits.isEmpty()) problems.add("Unit not found: " + missingUnits);
+
+        List<String> archivedUnits = units.values().stream()
+                .filter(u -> u.state() == EntityState.ARCHIVED)
+                .map(ReferenceDto::name)
+                .sorted()
+                .toList();
+        if (!archivedUnits.isEmpty()) problems.add("Unit is archived: " + archivedUnits);
+
+        if (!problems.isEmpty()) throw new BusinessException(String.join("; ", problems));
+
+        return new References(resources.keySet(), units.keySet());
+    }
+
+    private static Set<Long> distinct(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return Set.of();
+        Set<Long> set = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null) set.add(id);
+        }
+        return set;
+    }
+
+    /**
+     * The checked references of one document. Must be used inside the transaction that
+     * saves it; the persistence context returns the same instance for repeated ids.
+     */
+    public final class References {
+        private final Set<Long> resourceIds;
+        private final Set<Long> unitIds;
+
+        private References(Set<Long> resourceIds, Set<Long> unitIds) {
+            this.resourceIds = resourceIds;
+            this.unitIds = unitIds;
+        }
+
+        public Resource resource(Long id) {
+            return resourceIds.contains(id) ? resourceRepository.getReferenceById(id) : null;
+        }
+
+        public Unit unit(Long id) {
+            return unitIds.contains(id) ? unitRepository.getReferenceById(id) : null;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.warehouse.service;
+
+/**
+ * Another node changed data behind a local cache, received over the
+ * {@link InvalidationBus}. A {@code null} cache means "everything": the bus was
+ * disconnected and may have missed messages.
+ */
+public record RemoteInvalidationEvent(String cache, String key) {
+
+    public boolean covers(String name) {
+        return cache == null || cache.equals(name);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.TurnoverRowDto;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.ReportRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+public class ReportService {
+
+    private final ReportRepository reportRepository;
+
+    public ReportService(ReportRepository reportRepository) {
+        this.reportRepository = reportRepository;
+    }
+
+    public void validateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BusinessException("'from' must not be after 'to'");
+        }
+    }
+
+    /**
+     * Opening balance, received, shipped (signed shipments only) and closing balance per
+     * (resource, unit) for documents dated in [from, to]. Rows are pushed to {@code sink}
+     * while the query is still being read.
+     */
+    @Transactional(readOnly = true)
+    public void streamTurnover(LocalDate from, LocalDate to,
+                               List<Long> resourceIds, List<Long> unitIds,
+                               Consumer<TurnoverRowDto> sink) {
+        validateRange(from, to);
+        reportRepository.streamTurnover(from, to, toIdSet(resourceIds), toIdSet(unitIds), sink);
+    }
+
+    private Set<Long> toIdSet(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return Set.of();
+        Set<Long> set = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null) set.add(id);
+        }
+        return set;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.warehouse.service;
 
+import com.example.warehouse.dto.ReferenceDto;
 import com.example.warehouse.dto.ResourceDto;
 import com.example.warehouse.entity.EntityState;
 import com.example.warehouse.entity.Resource;
@@ -20,13 +21,16 @@ public class ResourceService {
     private final ResourceRepository resourceRepository;
     private final ReceiptItemRepository receiptItemRepository;
     private final ShipmentItemRepository shipmentItemRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public ResourceService(ResourceRepository resourceRepository,
                            ReceiptItemRepository receiptItemRepository,
-                           ShipmentItemRepository shipmentItemRepository) {
+                           ShipmentItemRepository shipmentItemRepository,
+                           ReferenceDataCache referenceDataCache) {
         this.resourceRepository = resourceRepository;
         this.receiptItemRepository = receiptItemRepository;
         this.shipmentItemRepository = shipmentItemRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Transactional(readOnly = true)
@@ -34,9 +38,8 @@ public class ResourceService {
         return resourceRepository.findAll();
     }
 
-    @Transactional(readOnly = true)
-    public List<Resource> getAllActive() {
-        return resourceRepository.findAllByState(EntityState.ACTIVE);
+    public List<ReferenceDto> getAllActive() {
+        return referenceDataCache.activeResources();
     }
 
     @Transactional(readOnly = true)
@@ -44,7 +47,6 @@ public class ResourceService {
         return listAll().stream().map(this::toDto).toList();
     }
 
-    @Transactional(readOnly = true)
     public List<ResourceDto> getAllActiveDto() {
         return getAllActive().stream().map(this::toDto).toList();
     }
@@ -71,7 +73,9 @@ public class ResourceService {
         r.setName(name);
         r.setState(EntityState.ACTIVE);
 
-        return toDto(resourceRepository.save(r));
+        Resource saved = resourceRepository.save(r);
+        referenceDataCache.recordChange(ReferenceDataCache.RESOURCES);
+        return toDto(saved);
     }
 
     @Transactional
@@ -89,7 +93,9 @@ public class ResourceService {
         }
 
         r.setName(name);
-        return toDto(resourceRepository.save(r));
+        Resource saved = resourceRepository.save(r);
+        referenceDataCache.recordChange(ReferenceDataCache.RESOURCES);
+        return toDto(saved);
     }
 
     @Transactional
@@ -97,7 +103,9 @@ public class ResourceService {
         Resource r = resourceRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Resource not found"));
         r.setState(state);
-        return toDto(resourceRepository.save(r));
+        Resource saved = resourceRepository.save(r);
+        referenceDataCache.recordChange(ReferenceDataCache.RESOURCES);
+        return toDto(saved);
     }
 
     @Transactional
@@ -106,6 +114,7 @@ public class ResourceService {
             throw new BusinessException("Resource is used. Archive it instead.");
         }
         resourceRepository.deleteById(id);
+        referenceDataCache.recordChange(ReferenceDataCache.RESOURCES);
     }
 
     private ResourceDto toDto(Resource r) {
@@ -115,4 +124,12 @@ public class ResourceService {
         dto.setState(r.getState());
         return dto;
     }
+
+    private ResourceDto toDto(ReferenceDto r) {
+        ResourceDto dto = new ResourceDto();
+        dto.setId(r.id());
+        dto.setName(r.name());
+        dto.setState(r.state());
+        return dto;
+    }
 }
\ No newline at end of file
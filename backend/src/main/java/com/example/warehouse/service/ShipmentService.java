@@ -1,9 +1,17 @@
 package com.example.warehouse.service;
 
+import com.example.warehouse.config.RetryOnConflict;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.CursorPage;
+import com.example.warehouse.dto.DocumentCursor;
+import com.example.warehouse.dto.ReferenceDto;
+import com.example.warehouse.dto.ShipmentActionResultDto;
 import com.example.warehouse.dto.ShipmentDto;
 import com.example.warehouse.dto.ShipmentItemDto;
+import com.example.warehouse.dto.ShipmentListItemDto;
 import com.example.warehouse.entity.*;
 import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.exception.ConflictException;
 import com.example.warehouse.exception.NotFoundException;
 import com.example.warehouse.repository.*;
 import com.example.warehouse.util.Normalize;
@@ -18,33 +26,36 @@ import java.util.stream.Collectors;
 @Service
 public class ShipmentService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BULK_SIZE = 5000;
+
     private final ShipmentRepository shipmentRepository;
     private final ClientRepository clientRepository;
-    private final ResourceRepository resourceRepository;
-    private final UnitRepository unitRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final ReferenceResolver referenceResolver;
     private final BalanceService balanceService;
+    private final DailyMovementService dailyMovementService;
+    private final DocumentNumberIndex documentNumberIndex;
 
     public ShipmentService(ShipmentRepository shipmentRepository,
                            ClientRepository clientRepository,
-                           ResourceRepository resourceRepository,
-                           UnitRepository unitRepository,
-                           BalanceService balanceService) {
+                           ReferenceDataCache referenceDataCache,
+                           ReferenceResolver referenceResolver,
+                           BalanceService balanceService,
+                           DailyMovementService dailyMovementService,
+                           DocumentNumberIndex documentNumberIndex) {
         this.shipmentRepository = shipmentRepository;
         this.clientRepository = clientRepository;
-        this.resourceRepository = resourceRepository;
-        this.unitRepository = unitRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.referenceResolver = referenceResolver;
         this.balanceService = balanceService;
+        this.dailyMovementService = dailyMovementService;
+        this.documentNumberIndex = documentNumberIndex;
     }
 
-    @Transactional(readOnly = true)
-    public List<String> getAllNumbers() {
-        return shipmentRepository.findDistinctNumbers().stream()
-                .filter(Objects::nonNull)
-                .map(String::trim)
-                .filter(s -> !s.isBlank())
-                .distinct()
-                .sorted()
-                .toList();
+    public List<String> findNumbers(String prefix, Integer limit) {
+        return documentNumberIndex.find(DocumentType.SHIPMENT, prefix, limit);
     }
 
     public ShipmentDto newDraft() {
@@ -63,81 +74,83 @@ public class ShipmentService {
     }
 
     @Transactional(readOnly = true)
-    public List<Shipment> search(LocalDate from,
-                                 LocalDate to,
-                                 List<String> numbers,
-                                 List<Long> resourceIds,
-                                 List<Long> unitIds,
-                                 Long clientId,
-                                 ShipmentState state) {
-
-        List<Shipment> base = shipmentRepository.findAll();
-
-        if (from != null) {
-            base = base.stream()
-                    .filter(s -> s.getDate() != null && !s.getDate().isBefore(from))
-                    .toList();
-        }
-
-        if (to != null) {
-            base = base.stream()
-                    .filter(s -> s.getDate() != null && !s.getDate().isAfter(to))
-                    .toList();
-        }
-
-        if (numbers != null && !numbers.isEmpty()) {
-            Set<String> nset = numbers.stream()
-                    .filter(Objects::nonNull)
-                    .map(String::trim)
-                    .filter(x -> !x.isBlank())
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toSet());
-
-            base = base.stream()
-                    .filter(s -> s.getNumber() != null && nset.contains(s.getNumber().toLowerCase()))
-                    .toList();
-        }
-
-        if (clientId != null && clientId > 0) {
-            base = base.stream()
-                    .filter(s -> s.getClient() != null && Objects.equals(s.getClient().getId(), clientId))
-                    .toList();
+    public CursorPage<ShipmentListItemDto> searchPage(LocalDate from,
+                                                      LocalDate to,
+                                                      List<String> numbers,
+                                                      List<Long> resourceIds,
+                                                      List<Long> unitIds,
+                                                      Long clientId,
+                                                      ShipmentState state,
+                                                      String cursor,
+                                                      Integer limit,
+                                                      boolean withTotal) {
+
+        int pageSize = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        Set<String> nset = (numbers == null) ? Set.of() : numbers.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(x -> !x.isBlank())
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+        Set<Long> rset = (resourceIds == null) ? Set.of() : new HashSet<>(resourceIds);
+        Set<Long> uset = (unitIds == null) ? Set.of() : new HashSet<>(unitIds);
+        Long client = (clientId != null && clientId > 0) ? clientId : null;
+
+        List<DocumentCursor> keys = shipmentRepository.searchKeys(
+                from, to, nset, rset, uset, client, state, DocumentCursor.parse(cursor), pageSize + 1);
+
+        boolean hasMore = keys.size() > pageSize;
+        if (hasMore) keys = keys.subList(0, pageSize);
+
+        // From the keys, not the loaded rows: a shipment deleted in between must not
+        // pull the cursor back to an earlier row.
+        String next = hasMore ? keys.get(keys.size() - 1).encode() : null;
+
+        List<Long> ids = keys.stream().map(DocumentCursor::id).toList();
+        List<ShipmentListItemDto> items = new ArrayList<>(ids.size());
+        if (!ids.isEmpty()) {
+            Map<Long, Shipment> byId = new HashMap<>();
+            for (Shipment s : shipmentRepository.findAllWithClientAndItemsByIdIn(ids)) {
+                byId.put(s.getId(), s);
+            }
+            for (Long id : ids) {
+                Shipment s = byId.get(id);
+                if (s != null) items.add(toListItemDto(s));
+            }
         }
 
-        if (state != null) {
-            base = base.stream()
-                    .filter(s -> s.getState() == state)
-                    .toList();
-        }
+        if (!withTotal) return new CursorPage<>(items, next);
 
-        if ((resourceIds != null && !resourceIds.isEmpty()) || (unitIds != null && !unitIds.isEmpty())) {
-            Set<Long> rset = (resourceIds == null) ? Set.of() : new HashSet<>(resourceIds);
-            Set<Long> uset = (unitIds == null) ? Set.of() : new HashSet<>(unitIds);
-
-            base = base.stream()
-                    .filter(s -> s.getItems() != null && s.getItems().stream().anyMatch(it -> {
-                        boolean rOk = rset.isEmpty() || (it.getResource() != null && rset.contains(it.getResource().getId()));
-                        boolean uOk = uset.isEmpty() || (it.getUnit() != null && uset.contains(it.getUnit().getId()));
-                        return rOk && uOk;
-                    }))
-                    .toList();
+        boolean unfiltered = from == null && to == null && nset.isEmpty() && rset.isEmpty()
+                && uset.isEmpty() && client == null && state == null;
+        if (unfiltered) {
+            long estimate = shipmentRepository.estimateTotal();
+            if (estimate >= 0) return new CursorPage<>(items, next, estimate, true);
         }
-
-        return base;
+        long total = shipmentRepository.countMatching(from, to, nset, rset, uset, client, state);
+        return new CursorPage<>(items, next, total, false);
     }
 
     @Transactional
+    @RetryOnConflict
     public ShipmentDto create(ShipmentDto dto) {
         Shipment s = buildFromDto(dto, null);
         s.setState(ShipmentState.DRAFT);
+        balanceService.reserve(aggregateItems(s.getItems(), false));
         shipmentRepository.save(s);
+        documentNumberIndex.recordChange(DocumentType.SHIPMENT, null, s.getNumber());
         return toDto(s);
     }
 
     @Transactional
+    @RetryOnConflict
     public void update(Long id, ShipmentDto dto) {
-        Shipment existing = shipmentRepository.findById(id)
+        Shipment existing = shipmentRepository.findForUpdateById(id)
                 .orElseThrow(() -> new NotFoundException("Shipment not found"));
+        if (dto.getVersion() != null && !dto.getVersion().equals(existing.getVersion())) {
+            throw new ConflictException("Shipment was changed by someone else, reload it and try again");
+        }
 
         if (existing.getState() == ShipmentState.SIGNED) {
             throw new BusinessException("Signed shipment cannot be edited. Revoke first.");
@@ -145,15 +158,26 @@ public class ShipmentService {
 
         Shipment updated = buildFromDto(dto, existing);
 
+        Map<BalanceKey, BigDecimal> reservation = aggregateItems(updated.getItems(), false);
+        aggregateItems(existing.getItems(), true).forEach((k, q) -> reservation.merge(k, q, BigDecimal::add));
+        balanceService.reserve(reservation);
+
+        documentNumberIndex.recordChange(DocumentType.SHIPMENT, existing.getNumber(), updated.getNumber());
         existing.setNumber(updated.getNumber());
         existing.setDate(updated.getDate());
         existing.setClient(updated.getClient());
+
+        // Orphan deletes are flushed after inserts, so drop the old lines first
+        // to keep uq_shipment_item from rejecting lines that stay on the document.
+        existing.setItems(null);
+        shipmentRepository.flush();
         existing.setItems(updated.getItems());
 
         shipmentRepository.save(existing);
     }
 
     @Transactional
+    @RetryOnConflict
     public void delete(Long id) {
         Shipment s = shipmentRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Shipment not found"));
@@ -161,10 +185,13 @@ public class ShipmentService {
         if (s.getState() == ShipmentState.SIGNED) {
             throw new BusinessException("Signed shipment cannot be deleted. Revoke first.");
         }
+        balanceService.reserve(aggregateItems(s.getItems(), true));
         shipmentRepository.delete(s);
+        documentNumberIndex.recordChange(DocumentType.SHIPMENT, s.getNumber(), null);
     }
 
     @Transactional
+    @RetryOnConflict
     public void sign(Long id) {
         Shipment s = shipmentRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Shipment not found"));
@@ -175,29 +202,101 @@ public class ShipmentService {
             throw new BusinessException("Shipment cannot be empty");
         }
 
-        for (ShipmentItem it : s.getItems()) {
-            balanceService.subtract(it.getResource(), it.getUnit(), it.getQuantity());
-        }
+        // The draft's reservation becomes the decrement.
+        Map<BalanceKey, BigDecimal> outgoing = aggregateItems(s.getItems(), true);
+        balanceService.applyDeltas(DocumentType.SHIPMENT, s.getId(), outgoing, outgoing);
+        dailyMovementService.recordShipment(s.getDate(), aggregateItems(s.getItems(), false));
 
         s.setState(ShipmentState.SIGNED);
         shipmentRepository.save(s);
     }
 
     @Transactional
+    @RetryOnConflict
     public void revoke(Long id) {
         Shipment s = shipmentRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Shipment not found"));
 
         if (s.getState() == ShipmentState.DRAFT) return;
 
-        for (ShipmentItem it : s.getItems()) {
-            balanceService.add(it.getResource(), it.getUnit(), it.getQuantity());
-        }
+        // Back to draft: the stock returns and is reserved for it again.
+        Map<BalanceKey, BigDecimal> returned = aggregateItems(s.getItems(), false);
+        balanceService.applyDeltas(DocumentType.SHIPMENT, s.getId(), returned, returned);
+        dailyMovementService.recordShipment(s.getDate(), aggregateItems(s.getItems(), true));
 
         s.setState(ShipmentState.DRAFT);
         shipmentRepository.save(s);
     }
 
+    /**
+     * Signs many shipments in one transaction. Shipments and items are loaded in one
+     * query and all balance changes are checked and written in one batch. A shipment
+     * that cannot be signed is reported as FAILED and leaves the others unaffected.
+     */
+    @Transactional
+    @RetryOnConflict
+    public List<ShipmentActionResultDto> signAll(List<Long> ids) {
+        return changeStateAll(ids, ShipmentState.SIGNED);
+    }
+
+    /**
+     * Bulk counterpart of {@link #revoke}; see {@link #signAll}.
+     */
+    @Transactional
+    @RetryOnConflict
+    public List<ShipmentActionResultDto> revokeAll(List<Long> ids) {
+        return changeStateAll(ids, ShipmentState.DRAFT);
+    }
+
+    private List<ShipmentActionResultDto> changeStateAll(List<Long> ids, ShipmentState target) {
+        if (ids == null || ids.isEmpty()) throw new BusinessException("Shipment ids are required");
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.size() > MAX_BULK_SIZE) {
+            throw new BusinessException("At most " + MAX_BULK_SIZE + " shipments per request");
+        }
+
+        Map<Long, Shipment> byId = new HashMap<>();
+        for (Shipment s : shipmentRepository.findAllWithClientAndItemsByIdIn(distinct)) {
+            byId.put(s.getId(), s);
+        }
+
+        boolean signing = target == ShipmentState.SIGNED;
+        Map<Long, ShipmentActionResultDto> results = new HashMap<>();
+        // Signing turns each draft's reservation into the decrement, revoking does the reverse.
+        Map<Long, Map<BalanceKey, BigDecimal>> deltas = new LinkedHashMap<>();
+        for (Long id : distinct) {
+            Shipment s = byId.get(id);
+            if (s == null) {
+                results.put(id, new ShipmentActionResultDto(id, ShipmentActionResultDto.Status.NOT_FOUND, "Shipment not found"));
+            } else if (s.getState() == target) {
+                results.put(id, new ShipmentActionResultDto(id, ShipmentActionResultDto.Status.UNCHANGED, null));
+            } else if (signing && (s.getItems() == null || s.getItems().isEmpty())) {
+                results.put(id, new ShipmentActionResultDto(id, ShipmentActionResultDto.Status.FAILED, "Shipment cannot be empty"));
+            } else {
+                deltas.put(id, aggregateItems(s.getItems(), signing));
+            }
+        }
+
+        Map<Long, String> rejected = balanceService.applyWhatFits(DocumentType.SHIPMENT, deltas, deltas);
+
+        SortedMap<LocalDate, Map<BalanceKey, BigDecimal>> shippedByDate = new TreeMap<>();
+        for (Long id : deltas.keySet()) {
+            String problem = rejected.get(id);
+            if (problem != null) {
+                results.put(id, new ShipmentActionResultDto(id, ShipmentActionResultDto.Status.FAILED, problem));
+                continue;
+            }
+            Shipment s = byId.get(id);
+            Map<BalanceKey, BigDecimal> day = shippedByDate.computeIfAbsent(s.getDate(), d -> new HashMap<>());
+            aggregateItems(s.getItems(), !signing).forEach((k, q) -> day.merge(k, q, BigDecimal::add));
+            s.setState(target);
+            results.put(id, new ShipmentActionResultDto(id, ShipmentActionResultDto.Status.DONE, null));
+        }
+        shippedByDate.forEach(dailyMovementService::recordShipment);
+
+        return distinct.stream().map(results::get).toList();
+    }
+
     private Shipment buildFromDto(ShipmentDto dto, Shipment existing) {
         if (dto == null) throw new BusinessException("Shipment is required");
 
@@ -216,9 +315,9 @@ public class ShipmentService {
         }
 
         if (dto.getClientId() == null) throw new BusinessException("Client is required");
-        Client client = clientRepository.findById(dto.getClientId())
+        ReferenceDto client = referenceDataCache.client(dto.getClientId())
                 .orElseThrow(() -> new BusinessException("Client not found"));
-        if (client.getState() == EntityState.ARCHIVED) throw new BusinessException("Client is archived");
+        if (client.state() == EntityState.ARCHIVED) throw new BusinessException("Client is archived");
 
         LocalDate date = (dto.getDate() == null) ? LocalDate.now() : dto.getDate();
 
@@ -227,7 +326,7 @@ public class ShipmentService {
 
         Shipment s = new Shipment();
         s.setNumber(number);
-        s.setClient(client);
+        s.setClient(clientRepository.getReferenceById(client.id()));
         s.setDate(date);
         s.setState(existing == null ? ShipmentState.DRAFT : existing.getState());
         s.setItems(items);
@@ -238,7 +337,9 @@ public class ShipmentService {
     private List<ShipmentItem> mapItems(List<ShipmentItemDto> dtos) {
         if (dtos == null) return new ArrayList<>();
 
-        List<ShipmentItem> items = new ArrayList<>();
+        List<ShipmentItemDto> lines = new ArrayList<>();
+        List<Long> resourceIds = new ArrayList<>();
+        List<Long> unitIds = new ArrayList<>();
         for (ShipmentItemDto d : dtos) {
             if (d == null) continue;
 
@@ -249,34 +350,68 @@ public class ShipmentService {
                 throw new BusinessException("Quantity must be > 0");
             }
 
-            Resource res = resourceRepository.findById(d.getResourceId())
-                    .orElseThrow(() -> new BusinessException("Resource not found"));
-            Unit unit = unitRepository.findById(d.getUnitId())
-                    .orElseThrow(() -> new BusinessException("Unit not found"));
+            lines.add(d);
+            resourceIds.add(d.getResourceId());
+            unitIds.add(d.getUnitId());
+        }
 
-            if (res.getState() == EntityState.ARCHIVED) throw new BusinessException("Resource is archived");
-            if (unit.getState() == EntityState.ARCHIVED) throw new BusinessException("Unit is archived");
+        ReferenceResolver.References refs = referenceResolver.resolveActive(resourceIds, unitIds);
 
+        List<ShipmentItem> items = new ArrayList<>(lines.size());
+        for (ShipmentItemDto d : lines) {
             ShipmentItem it = new ShipmentItem();
-            it.setResource(res);
-            it.setUnit(unit);
+            it.setResource(refs.resource(d.getResourceId()));
+            it.setUnit(refs.unit(d.getUnitId()));
             it.setQuantity(d.getQuantity());
             items.add(it);
         }
         return items;
     }
 
-    private ShipmentDto toDto(Shipment s) {
+    Map<BalanceKey, BigDecimal> aggregateItems(List<ShipmentItem> items, boolean outgoing) {
+        Map<BalanceKey, BigDecimal> m = new HashMap<>();
+        if (items == null) return m;
+
+        for (ShipmentItem it : items) {
+            if (it == null || it.getResource() == null || it.getUnit() == null || it.getQuantity() == null) continue;
+            BalanceKey k = new BalanceKey(it.getResource().getId(), it.getUnit().getId());
+            m.merge(k, outgoing ? it.getQuantity().negate() : it.getQuantity(), BigDecimal::add);
+        }
+        return m;
+    }
+
+    ShipmentListItemDto toListItemDto(Shipment s) {
+        ShipmentListItemDto dto = new ShipmentListItemDto();
+        dto.setId(s.getId());
+        dto.setVersion(s.getVersion());
+        dto.setNumber(s.getNumber());
+        dto.setDate(s.getDate());
+        dto.setState(s.getState());
+        if (s.getClient() != null) {
+            dto.setClientId(s.getClient().getId());
+            dto.setClientName(s.getClient().getName());
+        }
+        dto.setItems(toItemDtos(s.getItems()));
+        return dto;
+    }
+
+    ShipmentDto toDto(Shipment s) {
         ShipmentDto dto = new ShipmentDto();
         dto.setId(s.getId());
+        dto.setVersion(s.getVersion());
         dto.setNumber(s.getNumber());
         dto.setDate(s.getDate());
         dto.setClientId(s.getClient() == null ? null : s.getClient().getId());
         dto.setState(s.getState());
 
+        dto.setItems(toItemDtos(s.getItems()));
+        return dto;
+    }
+
+    private List<ShipmentItemDto> toItemDtos(List<ShipmentItem> source) {
         List<ShipmentItemDto> items = new ArrayList<>();
-        if (s.getItems() != null) {
-            for (ShipmentItem it : s.getItems()) {
+        if (source != null) {
+            for (ShipmentItem it : source) {
                 ShipmentItemDto d = new ShipmentItemDto();
                 d.setResourceId(it.getResource() == null ? null : it.getResource().getId());
                 d.setUnitId(it.getUnit() == null ? null : it.getUnit().getId());
@@ -284,7 +419,6 @@ public class ShipmentService {
                 items.add(d);
             }
         }
-        dto.setItems(items);
-        return dto;
+        return items;
     }
 }
\ No newline at end of file
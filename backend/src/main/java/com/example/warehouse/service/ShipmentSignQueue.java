@@ -0,0 +1,147 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.SignJobDto;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.exception.NotFoundException;
+import com.example.warehouse.repository.ShipmentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Optional asynchronous signing ({@code shipments.async-sign.enabled}). Each sign is a
+ * job routed to one of {@code partitions} single-threaded virtual-thread workers by the
+ * hash of the shipment's lowest resource id, so signs of the same goods run one after
+ * another instead of waiting on each other's balance row locks. Shipments spanning
+ * resources of several partitions still meet in the database, where the usual ordered
+ * row locks keep them correct.
+ * <p>
+ * Jobs live in memory and are dropped {@code job-retention-minutes} after they finish;
+ * a restart forgets queued jobs, and their shipments simply stay DRAFT. Job messages
+ * match what the synchronous endpoint would answer; unexpected failures are logged at
+ * ERROR with their stack trace and counted in {@code warehouse.shipments.sign.failures}.
+ */
+@Service
+public class ShipmentSignQueue {
+
+    static final String FAILURES_METRIC = "warehouse.shipments.sign.failures";
+
+    private static final Logger log = LoggerFactory.getLogger(ShipmentSignQueue.class);
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final Long shipmentId;
+        final Instant createdAt = Instant.now();
+        volatile SignJobDto.Status status = SignJobDto.Status.QUEUED;
+        volatile String message;
+        volatile Instant finishedAt;
+
+        Job(Long shipmentId) {
+            this.shipmentId = shipmentId;
+        }
+
+        SignJobDto toDto() {
+            return new SignJobDto(id, shipmentId, status, message, createdAt, finishedAt);
+        }
+    }
+
+    private final ShipmentService shipmentService;
+    private final ShipmentRepository shipmentRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration retention;
+
+    private final ExecutorService[] partitions;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ShipmentSignQueue(ShipmentService shipmentService,
+                             ShipmentRepository shipmentRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${shipments.async-sign.enabled:false}") boolean enabled,
+                             @Value("${shipments.async-sign.partitions:8}") int partitions,
+                             @Value("${shipments.async-sign.job-retention-minutes:60}") long retentionMinutes) {
+        if (partitions <= 0) throw new IllegalArgumentException("shipments.async-sign.partitions must be > 0");
+        this.shipmentService = shipmentService;
+        this.shipmentRepository = shipmentRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.partitions = new ExecutorService[enabled ? partitions : 0];
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.partitions[i] = Executors.newSingleThreadExecutor(
+                    Thread.ofVirtual().name("shipment-sign-" + i).factory());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SignJobDto submit(Long shipmentId) {
+        if (!enabled) throw new IllegalStateException("Asynchronous signing is disabled");
+        if (shipmentId == null) throw new BusinessException("Shipment id is required");
+        if (!shipmentRepository.existsById(shipmentId)) throw new NotFoundException("Shipment not found");
+
+        Long resourceId = shipmentRepository.findLowestResourceId(shipmentId);
+        int partition = (resourceId == null) ? 0 : Math.floorMod(Long.hashCode(resourceId), partitions.length);
+
+        Job job = new Job(shipmentId);
+        jobs.put(job.id, job);
+        partitions[partition].execute(() -> run(job));
+        return job.toDto();
+    }
+
+    public SignJobDto get(String jobId) {
+        Job job = (jobId == null) ? null : jobs.get(jobId);
+        if (job == null) throw new NotFoundException("Sign job not found");
+        return job.toDto();
+    }
+
+    private void run(Job job) {
+        job.status = SignJobDto.Status.RUNNING;
+        try {
+            shipmentService.sign(job.shipmentId);
+            job.status = SignJobDto.Status.DONE;
+        } catch (BusinessException | NotFoundException e) {
+            job.message = e.getMessage();
+            job.status = SignJobDto.Status.FAILED;
+        } catch (ConcurrencyFailureException e) {
+            // Conflicts that outlived the retries; the job can simply be submitted again.
+            job.message = "Concurrent modification, please retry";
+            job.status = SignJobDto.Status.FAILED;
+            meterRegistry.counter(FAILURES_METRIC, "exception", e.getClass().getSimpleName()).increment();
+        } catch (RuntimeException e) {
+            job.message = "Internal server error";
+            job.status = SignJobDto.Status.FAILED;
+            meterRegistry.counter(FAILURES_METRIC, "exception", e.getClass().getSimpleName()).increment();
+            log.error("Sign job {} for shipment {} failed", job.id, job.shipmentId, e);
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shipments.async-sign.prune-ms:60000}")
+    public void pruneFinished() {
+        if (jobs.isEmpty()) return;
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService p : partitions) p.shutdownNow();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.warehouse.service;
 
+import com.example.warehouse.dto.ReferenceDto;
 import com.example.warehouse.dto.UnitDto;
 import com.example.warehouse.entity.EntityState;
 import com.example.warehouse.entity.Unit;
@@ -20,13 +21,16 @@ public class UnitService {
     private final UnitRepository unitRepository;
     private final ReceiptItemRepository receiptItemRepository;
     private final ShipmentItemRepository shipmentItemRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public UnitService(UnitRepository unitRepository,
                        ReceiptItemRepository receiptItemRepository,
-                       ShipmentItemRepository shipmentItemRepository) {
+                       ShipmentItemRepository shipmentItemRepository,
+                       ReferenceDataCache referenceDataCache) {
         this.unitRepository = unitRepository;
         this.receiptItemRepository = receiptItemRepository;
         this.shipmentItemRepository = shipmentItemRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Transactional(readOnly = true)
@@ -48,9 +52,8 @@ public class UnitService {
                 .toList();
     }
 
-    @Transactional(readOnly = true)
-    public List<Unit> getAllActive() {
-        return unitRepository.findAllByState(EntityState.ACTIVE);
+    public List<ReferenceDto> getAllActive() {
+        return referenceDataCache.activeUnits();
     }
 
     @Transactional(readOnly = true)
@@ -58,7 +61,6 @@ public class UnitService {
         return search(q, state).stream().map(this::toDto).toList();
     }
 
-    @Transactional(readOnly = true)
     public List<UnitDto> getAllActiveDto() {
         return getAllActive().stream().map(this::toDto).toList();
     }
@@ -85,7 +87,9 @@ public class UnitService {
         u.setName(name);
         u.setState(EntityState.ACTIVE);
 
-        return toDto(unitRepository.save(u));
+        Unit saved = unitRepository.save(u);
+        referenceDataCache.recordChange(ReferenceDataCache.UNITS);
+        return toDto(saved);
     }
 
     @Transactional
@@ -103,7 +107,9 @@ public class UnitService {
         }
 
         u.setName(name);
-        return toDto(unitRepository.save(u));
+        Unit saved = unitRepository.save(u);
+        referenceDataCache.recordChange(ReferenceDataCache.UNITS);
+        return toDto(saved);
     }
 
     @Transactional
@@ -111,7 +117,9 @@ public class UnitService {
         Unit u = unitRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Unit not found"));
         u.setState(state);
-        return toDto(unitRepository.save(u));
+        Unit saved = unitRepository.save(u);
+        referenceDataCache.recordChange(ReferenceDataCache.UNITS);
+        return toDto(saved);
     }
 
     @Transactional
@@ -120,6 +128,7 @@ public class UnitService {
             throw new BusinessException("Unit is used. Archive it instead.");
         }
         unitRepository.deleteById(id);
+        referenceDataCache.recordChange(ReferenceDataCache.UNITS);
     }
 
     private UnitDto toDto(Unit u) {
@@ -129,4 +138,12 @@ public class UnitService {
         dto.setState(u.getState());
         return dto;
     }
+
+    private UnitDto toDto(ReferenceDto u) {
+        UnitDto dto = new UnitDto();
+        dto.setId(u.id());
+        dto.setName(u.name());
+        dto.setState(u.state());
+        return dto;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+-- Per-day totals by document date: receipts count as qty_in, signed shipments as qty_out.
+CREATE TABLE IF NOT EXISTS daily_movements (
+                                               date DATE NOT NULL,
+                                               resource_id BIGINT NOT NULL,
+                                               unit_id BIGINT NOT NULL,
+                                               qty_in NUMERIC(19,3) NOT NULL DEFAULT 0,
+    qty_out NUMERIC(19,3) NOT NULL DEFAULT 0,
+
+    CONSTRAINT pk_daily_movements PRIMARY KEY (date, resource_id, unit_id),
+    CONSTRAINT fk_daily_movement_resource FOREIGN KEY (resource_id) REFERENCES resources(id),
+    CONSTRAINT fk_daily_movement_unit FOREIGN KEY (unit_id) REFERENCES units(id)
+    );
+
+CREATE INDEX IF NOT EXISTS idx_daily_movements_key_date
+    ON daily_movements (resource_id, unit_id, date);
+
+INSERT INTO daily_movements (date, resource_id, unit_id, qty_in, qty_out)
+SELECT k.date, k.resource_id, k.unit_id, sum(k.qty_in), sum(k.qty_out)
+FROM (
+         SELECT r.date, ri.resource_id, ri.unit_id, ri.quantity AS qty_in, 0 AS qty_out
+         FROM receipt_items ri
+                  JOIN receipts r ON r.id = ri.receipt_id
+         UNION ALL
+         SELECT s.date, si.resource_id, si.unit_id, 0, si.quantity
+         FROM shipment_items si
+                  JOIN shipments s ON s.id = si.shipment_id
+         WHERE s.state = 'SIGNED'
+     ) k
+GROUP BY k.date, k.resource_id, k.unit_id
+ON CONFLICT (date, resource_id, unit_id) DO NOTHING;
@@ -0,0 +1,13 @@
+-- Extra increment-only counters for hot (resource, unit) pairs. The amount of a balance
+-- is balances.amount plus the sum of its shards; a scheduled fold moves shard sums back.
+CREATE TABLE IF NOT EXISTS balance_shards (
+                                              id BIGSERIAL PRIMARY KEY,
+                                              resource_id BIGINT NOT NULL,
+                                              unit_id BIGINT NOT NULL,
+                                              shard INTEGER NOT NULL,
+                                              amount NUMERIC(19,3) NOT NULL DEFAULT 0,
+
+    CONSTRAINT uq_balance_shard UNIQUE (resource_id, unit_id, shard),
+    CONSTRAINT fk_balance_shard_resource FOREIGN KEY (resource_id) REFERENCES resources(id),
+    CONSTRAINT fk_balance_shard_unit FOREIGN KEY (unit_id) REFERENCES units(id)
+    );
@@ -0,0 +1,12 @@
+-- Quantity held by DRAFT shipments. Available stock is amount (plus shards) minus reserved.
+ALTER TABLE balances ADD COLUMN IF NOT EXISTS reserved NUMERIC(19,3) NOT NULL DEFAULT 0;
+
+-- Existing drafts reserve what they would ship. Older drafts may exceed the stock on
+-- hand; those keys show negative availability until the drafts are fixed or signed.
+INSERT INTO balances (resource_id, unit_id, amount, reserved)
+SELECT si.resource_id, si.unit_id, 0, SUM(si.quantity)
+FROM shipment_items si
+         JOIN shipments s ON s.id = si.shipment_id
+WHERE s.state = 'DRAFT'
+GROUP BY si.resource_id, si.unit_id
+ON CONFLICT (resource_id, unit_id) DO UPDATE SET reserved = EXCLUDED.reserved;
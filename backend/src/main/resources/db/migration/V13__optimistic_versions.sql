@@ -0,0 +1,5 @@
+-- Optimistic concurrency: every write of these rows bumps the version and checks
+-- the one that was read.
+ALTER TABLE receipts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE shipments ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE balances ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Stock on hand and reservations never go below zero; the service checks both before
+-- writing and decrements of sharded keys fold the shards into the base row first.
+-- V12 only inserted rows with amount 0 and summed draft quantities, so the backfill
+-- satisfies these; a failure here means older data was already negative.
+ALTER TABLE balances ADD CONSTRAINT chk_balance_non_negative CHECK (amount >= 0 AND reserved >= 0);
+ALTER TABLE balance_shards ADD CONSTRAINT chk_balance_shard_non_negative CHECK (amount >= 0);
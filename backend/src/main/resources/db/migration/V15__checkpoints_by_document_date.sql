@@ -0,0 +1,9 @@
+-- Checkpoints now hold balances by document date (opening entries plus daily_movements),
+-- the same basis as the turnover report. The ones built from ledger time are dropped;
+-- the daily job creates new ones.
+DELETE FROM balance_checkpoints;
+
+ALTER TABLE balance_checkpoints DROP COLUMN IF EXISTS covered_until;
+
+-- Only the ledger-time delta scans used it.
+DROP INDEX IF EXISTS idx_stock_movements_created_at;
@@ -0,0 +1,7 @@
+CREATE INDEX IF NOT EXISTS idx_receipts_date_id ON receipts (date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_receipts_number_lower ON receipts (lower(number));
+
+CREATE INDEX IF NOT EXISTS idx_receipt_items_resource_unit ON receipt_items (resource_id, unit_id, receipt_id);
+
+CREATE INDEX IF NOT EXISTS idx_receipt_items_unit ON receipt_items (unit_id, receipt_id);
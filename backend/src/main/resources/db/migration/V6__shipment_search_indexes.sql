@@ -0,0 +1,9 @@
+CREATE INDEX IF NOT EXISTS idx_shipments_date_state_client ON shipments (date, state, client_id);
+
+CREATE INDEX IF NOT EXISTS idx_shipments_date_id ON shipments (date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_shipments_number_lower ON shipments (lower(number));
+
+CREATE INDEX IF NOT EXISTS idx_shipment_items_resource_unit ON shipment_items (resource_id, unit_id, shipment_id);
+
+CREATE INDEX IF NOT EXISTS idx_shipment_items_unit ON shipment_items (unit_id, shipment_id);
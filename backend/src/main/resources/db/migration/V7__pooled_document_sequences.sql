@@ -0,0 +1,6 @@
+-- Hibernate allocates document ids in blocks of 50 (pooled optimizer), which lets
+-- receipt and shipment lines be inserted as JDBC batches instead of row by row.
+ALTER SEQUENCE receipts_id_seq INCREMENT BY 50;
+ALTER SEQUENCE receipt_items_id_seq INCREMENT BY 50;
+ALTER SEQUENCE shipments_id_seq INCREMENT BY 50;
+ALTER SEQUENCE shipment_items_id_seq INCREMENT BY 50;
@@ -0,0 +1,36 @@
+CREATE TABLE IF NOT EXISTS stock_movements (
+                                               id BIGSERIAL PRIMARY KEY,
+                                               doc_type VARCHAR(20) NOT NULL,
+    doc_id BIGINT,
+    resource_id BIGINT NOT NULL,
+    unit_id BIGINT NOT NULL,
+    delta NUMERIC(19,3) NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+
+    CONSTRAINT fk_stock_movement_resource FOREIGN KEY (resource_id) REFERENCES resources(id),
+    CONSTRAINT fk_stock_movement_unit FOREIGN KEY (unit_id) REFERENCES units(id)
+    );
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_key_time
+    ON stock_movements (resource_id, unit_id, created_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_doc
+    ON stock_movements (doc_type, doc_id);
+
+-- The ledger is append-only; corrections are new rows, never edits.
+CREATE OR REPLACE FUNCTION stock_movements_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'stock_movements is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_stock_movements_append_only ON stock_movements;
+CREATE TRIGGER trg_stock_movements_append_only
+    BEFORE UPDATE OR DELETE ON stock_movements
+    FOR EACH ROW EXECUTE FUNCTION stock_movements_append_only();
+
+-- Existing balances become the opening entries, so sum(delta) per key equals balances.amount.
+INSERT INTO stock_movements (doc_type, doc_id, resource_id, unit_id, delta)
+SELECT 'OPENING', NULL, b.resource_id, b.unit_id, b.amount
+FROM balances b
+WHERE b.amount <> 0;
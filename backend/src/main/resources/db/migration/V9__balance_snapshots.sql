@@ -0,0 +1,21 @@
+-- A checkpoint marks a complete snapshot: every movement with created_at < covered_until is in it.
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+                                                   snapshot_date DATE PRIMARY KEY,
+                                                   covered_until TIMESTAMPTZ NOT NULL,
+                                                   created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+    );
+
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+                                                 snapshot_date DATE NOT NULL,
+                                                 resource_id BIGINT NOT NULL,
+                                                 unit_id BIGINT NOT NULL,
+                                                 amount NUMERIC(19,3) NOT NULL,
+
+    CONSTRAINT pk_balance_snapshots PRIMARY KEY (snapshot_date, resource_id, unit_id),
+    CONSTRAINT fk_balance_snapshot_checkpoint FOREIGN KEY (snapshot_date)
+    REFERENCES balance_checkpoints(snapshot_date) ON DELETE CASCADE
+    );
+
+-- Delta scans between a checkpoint and the requested day are time-range scans over all keys.
+CREATE INDEX IF NOT EXISTS idx_stock_movements_created_at
+    ON stock_movements (created_at);
@@ -0,0 +1,151 @@
+package com.example.warehouse;
+
+import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.dto.ClientDto;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.ReceiptItemDto;
+import com.example.warehouse.dto.ResourceDto;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.dto.ShipmentItemDto;
+import com.example.warehouse.dto.UnitDto;
+import com.example.warehouse.service.BalanceService;
+import com.example.warehouse.service.ClientService;
+import com.example.warehouse.service.ResourceService;
+import com.example.warehouse.service.UnitService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Base for integration tests against a real database: one embedded PostgreSQL per test
+ * JVM, migrated by Flyway when the first context starts. The ledger is append-only, so
+ * tests do not clean up; each one works on resources, units and clients it creates.
+ */
+public abstract class PostgresTestSupport {
+
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected BalanceService balanceService;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private UnitService unitService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> POSTGRES.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            EmbeddedPostgres pg = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    pg.close();
+                } catch (IOException ignored) {
+                    // The JVM is exiting anyway.
+                }
+            }));
+            return pg;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start embedded PostgreSQL", e);
+        }
+    }
+
+    protected static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    protected Long newResource() {
+        ResourceDto dto = new ResourceDto();
+        dto.setName(unique("resource"));
+        return resourceService.create(dto).getId();
+    }
+
+    protected Long newUnit() {
+        UnitDto dto = new UnitDto();
+        dto.setName(unique("unit"));
+        return unitService.create(dto).getId();
+    }
+
+    protected Long newClient() {
+        ClientDto dto = new ClientDto();
+        dto.setName(unique("client"));
+        return clientService.create(dto).getId();
+    }
+
+    protected static ReceiptDto receipt(String number, LocalDate date, Long resourceId, Long unitId, String quantity) {
+        ReceiptItemDto item = new ReceiptItemDto();
+        item.setResourceId(resourceId);
+        item.setUnitId(unitId);
+        item.setQuantity(new BigDecimal(quantity));
+
+        ReceiptDto dto = new ReceiptDto();
+        dto.setNumber(number);
+        dto.setDate(date);
+        dto.setItems(List.of(item));
+        return dto;
+    }
+
+    protected static ShipmentDto shipment(String number, LocalDate date, Long clientId,
+                                          Long resourceId, Long unitId, String quantity) {
+        ShipmentItemDto item = new ShipmentItemDto();
+        item.setResourceId(resourceId);
+        item.setUnitId(unitId);
+        item.setQuantity(new BigDecimal(quantity));
+
+        ShipmentDto dto = new ShipmentDto();
+        dto.setNumber(number);
+        dto.setDate(date);
+        dto.setClientId(clientId);
+        dto.setItems(List.of(item));
+        return dto;
+    }
+
+    /**
+     * The balance of one key; a key without a row reads as all zeros.
+     */
+    protected BalanceDto balance(Long resourceId, Long unitId) {
+        List<BalanceDto> found = balanceService.searchDto(List.of(resourceId), List.of(unitId));
+        if (!found.isEmpty()) return found.get(0);
+
+        BalanceDto empty = new BalanceDto(null, resourceId, null, unitId, null, BigDecimal.ZERO, BigDecimal.ZERO);
+        empty.setAvailable(BigDecimal.ZERO);
+        return empty;
+    }
+
+    protected BigDecimal ledgerSum(Long resourceId, Long unitId) {
+        return jdbcTemplate.queryForObject(
+                "select coalesce(sum(delta), 0) from stock_movements where resource_id = ? and unit_id = ?",
+                BigDecimal.class, resourceId, unitId);
+    }
+
+    protected static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual),
+                () -> "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.warehouse.config;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.exception.ConflictException;
+import com.example.warehouse.service.ReceiptService;
+import com.example.warehouse.service.ShipmentService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "concurrency.retry.max-attempts=3",
+        "concurrency.retry.base-delay-ms=1",
+        "concurrency.retry.max-delay-ms=5"
+})
+class ConflictRetryAspectTests extends PostgresTestSupport {
+
+    /**
+     * Loses the first {@code failures} calls to a concurrent update. Accessed through
+     * methods only: the test sees the aspect's proxy, not this instance.
+     */
+    static class Flaky {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile int failures;
+
+        public void failFirst(int failures) {
+            this.failures = failures;
+            calls.set(0);
+        }
+
+        public int calls() {
+            return calls.get();
+        }
+
+        @RetryOnConflict
+        public String call() {
+            if (calls.incrementAndGet() <= failures) {
+                throw new OptimisticLockingFailureException("lost the race");
+            }
+            return "done";
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        Flaky flaky() {
+            return new Flaky();
+        }
+    }
+
+    @Autowired
+    private Flaky flaky;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Test
+    void retriesUntilTheCallWins() {
+        double retried = conflicts("retried");
+        flaky.failFirst(2);
+
+        assertEquals("done", flaky.call());
+        assertEquals(3, flaky.calls());
+        assertEquals(retried + 2, conflicts("retried"));
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        double exhausted = conflicts("exhausted");
+        flaky.failFirst(3);
+
+        assertThrows(OptimisticLockingFailureException.class, flaky::call);
+        assertEquals(3, flaky.calls());
+        assertEquals(exhausted + 1, conflicts("exhausted"));
+    }
+
+    @Test
+    void leavesRetriesToTheOuterTransaction() {
+        flaky.failFirst(1);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(s -> flaky.call()));
+        assertEquals(1, flaky.calls());
+    }
+
+    @Test
+    void concurrentEditsOfOneReceiptKeepBalanceAndLedgerInStep() throws Exception {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        ReceiptDto created = receiptService.create(receipt(unique("R"), today, resource, unit, "1"));
+
+        int writers = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(writers)) {
+            for (int i = 0; i < writers; i++) {
+                ReceiptDto edit = receipt(created.getNumber(), today, resource, unit, Integer.toString(10 + i));
+                results.add(pool.submit(() -> {
+                    start.await();
+                    receiptService.update(created.getId(), edit);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            int applied = 0;
+            for (Future<?> f : results) {
+                try {
+                    f.get();
+                    applied++;
+                } catch (ExecutionException e) {
+                    // Only a conflict that outlived every retry may escape.
+                    assertInstanceOf(ConcurrencyFailureException.class, e.getCause());
+                }
+            }
+            assertTrue(applied > 0);
+        }
+
+        String quantity = receiptService.getById(created.getId()).getItems().get(0).getQuantity().toPlainString();
+        assertAmount(quantity, balance(resource, unit).getAmount());
+        assertAmount(quantity, ledgerSum(resource, unit));
+    }
+
+    @Test
+    void writesBumpDocumentAndBalanceVersions() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        ReceiptDto receipt = receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+        long receiptVersion = version("receipts", receipt.getId());
+        long balanceVersion = balanceVersion(resource, unit);
+
+        receiptService.update(receipt.getId(), receipt(receipt.getNumber(), today, resource, unit, "12"));
+
+        assertEquals(receiptVersion + 1, version("receipts", receipt.getId()));
+        assertTrue(balanceVersion(resource, unit) > balanceVersion);
+
+        ShipmentDto shipment = shipmentService.create(shipment(unique("S"), today, newClient(), resource, unit, "2"));
+        long shipmentVersion = version("shipments", shipment.getId());
+        balanceVersion = balanceVersion(resource, unit);
+
+        shipmentService.sign(shipment.getId());
+
+        assertEquals(shipmentVersion + 1, version("shipments", shipment.getId()));
+        assertTrue(balanceVersion(resource, unit) > balanceVersion);
+    }
+
+    @Test
+    void staleClientVersionIsAnsweredWithoutRetrying() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        ReceiptDto receipt = receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+        ShipmentDto shipment = shipmentService.create(shipment(unique("S"), today, newClient(), resource, unit, "2"));
+        double receiptConflicts = conflicts("ReceiptService.update", "retried");
+        double shipmentConflicts = conflicts("ShipmentService.update", "retried");
+
+        ReceiptDto edit = receipt(receipt.getNumber(), today, resource, unit, "12");
+        edit.setVersion(receipt.getVersion());
+        receiptService.update(receipt.getId(), edit);
+        assertEquals(receipt.getVersion() + 1, receiptService.getById(receipt.getId()).getVersion());
+
+        ReceiptDto stale = receipt(receipt.getNumber(), today, resource, unit, "15");
+        stale.setVersion(receipt.getVersion());
+        assertThrows(ConflictException.class, () -> receiptService.update(receipt.getId(), stale));
+        assertAmount("12", balance(resource, unit).getAmount());
+
+        ShipmentDto shipmentEdit = shipment(shipment.getNumber(), today, shipment.getClientId(), resource, unit, "3");
+        shipmentEdit.setVersion(shipment.getVersion());
+        shipmentService.update(shipment.getId(), shipmentEdit);
+
+        ShipmentDto staleShipment = shipment(shipment.getNumber(), today, shipment.getClientId(), resource, unit, "5");
+        staleShipment.setVersion(shipment.getVersion());
+        assertThrows(ConflictException.class, () -> shipmentService.update(shipment.getId(), staleShipment));
+        assertEquals(shipment.getVersion() + 1, shipmentService.getById(shipment.getId()).getVersion());
+
+        assertEquals(receiptConflicts, conflicts("ReceiptService.update", "retried"));
+        assertEquals(shipmentConflicts, conflicts("ShipmentService.update", "retried"));
+    }
+
+    private long version(String table, Long id) {
+        return jdbcTemplate.queryForObject("select version from " + table + " where id = ?", Long.class, id);
+    }
+
+    private long balanceVersion(Long resourceId, Long unitId) {
+        return jdbcTemplate.queryForObject(
+                "select version from balances where resource_id = ? and unit_id = ?", Long.class, resourceId, unitId);
+    }
+
+    private double conflicts(String outcome) {
+        return conflicts("Flaky.call", outcome);
+    }
+
+    private double conflicts(String method, String outcome) {
+        Counter counter = meterRegistry.find(ConflictRetryAspect.CONFLICTS_METRIC)
+                .tags("method", method, "outcome", outcome)
+                .counter();
+        return (counter == null) ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.entity.DocumentType;
+import com.example.warehouse.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class BalanceServiceTests extends PostgresTestSupport {
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Test
+    void documentsMoveBalanceAndLedgerTogether() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+
+        receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+        ShipmentDto draft = shipmentService.create(shipment(unique("S"), today, client, resource, unit, "4"));
+        shipmentService.sign(draft.getId());
+
+        BalanceDto b = balance(resource, unit);
+        assertAmount("6", b.getAmount());
+        assertAmount("0", b.getReserved());
+        assertAmount("6", ledgerSum(resource, unit));
+    }
+
+    @Test
+    void decrementBeyondAvailableIsRejectedAndWritesNothing() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        BalanceKey key = new BalanceKey(resource, unit);
+        balanceService.applyDeltas(DocumentType.RECEIPT, null, Map.of(key, new BigDecimal("3")));
+
+        assertThrows(BusinessException.class, () -> balanceService.applyDeltas(
+                DocumentType.SHIPMENT, null, Map.of(key, new BigDecimal("-5"))));
+
+        assertAmount("3", balance(resource, unit).getAmount());
+        assertAmount("3", ledgerSum(resource, unit));
+    }
+
+    @Test
+    void concurrentDecrementsInOppositeKeyOrderNeitherDeadlockNorOverdraw() throws Exception {
+        Long unit = newUnit();
+        BalanceKey a = new BalanceKey(newResource(), unit);
+        BalanceKey b = new BalanceKey(newResource(), unit);
+        balanceService.applyDeltas(DocumentType.RECEIPT, null, Map.of(a, new BigDecimal("20"), b, new BigDecimal("20")));
+
+        int writers = 40;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < writers; i++) {
+                // Callers hand over their keys in both orders; the service must lock in one.
+                Map<BalanceKey, BigDecimal> deltas = new LinkedHashMap<>();
+                BalanceKey first = (i % 2 == 0) ? a : b;
+                deltas.put(first, BigDecimal.ONE.negate());
+                deltas.put(first == a ? b : a, BigDecimal.ONE.negate());
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        balanceService.applyDeltas(DocumentType.SHIPMENT, null, deltas);
+                        return true;
+                    } catch (BusinessException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int applied = 0;
+            for (Future<Boolean> f : results) {
+                if (f.get()) applied++;
+            }
+            assertEquals(20, applied);
+        }
+
+        assertAmount("0", balance(a.resourceId(), unit).getAmount());
+        assertAmount("0", balance(b.resourceId(), unit).getAmount());
+        assertAmount("0", ledgerSum(a.resourceId(), unit));
+    }
+}
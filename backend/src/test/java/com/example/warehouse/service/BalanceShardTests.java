@@ -0,0 +1,72 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.BalanceKey;
+import com.example.warehouse.entity.DocumentType;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Water/kg (3:1) has no seeded stock and no other test touches it.
+@SpringBootTest(properties = {
+        "balances.shards.keys=3:1",
+        "balances.shards.count=4",
+        "balances.shards.fold-ms=3600000"
+})
+class BalanceShardTests extends PostgresTestSupport {
+
+    private static final BalanceKey HOT = new BalanceKey(3L, 1L);
+
+    @Test
+    void incrementsGoToShardsAndFoldKeepsTheTotal() {
+        BigDecimal before = available();
+        for (int i = 0; i < 10; i++) {
+            balanceService.applyDeltas(DocumentType.RECEIPT, null, Map.of(HOT, BigDecimal.ONE));
+        }
+        assertTrue(shardSum().signum() > 0);
+        assertAmount(before.add(BigDecimal.TEN).toPlainString(), available());
+
+        balanceService.foldShards();
+
+        assertAmount("0", shardSum());
+        assertAmount(before.add(BigDecimal.TEN).toPlainString(), baseAmount());
+        assertAmount(ledgerSum(HOT.resourceId(), HOT.unitId()).toPlainString(), available());
+    }
+
+    @Test
+    void decrementFoldsShardsFirstSoTheBaseRowStaysNonNegative() {
+        balanceService.foldShards();
+        BigDecimal before = available();
+        balanceService.applyDeltas(DocumentType.RECEIPT, null, Map.of(HOT, new BigDecimal("5")));
+        assertTrue(shardSum().signum() > 0);
+
+        // More than the base row holds on its own.
+        BigDecimal all = before.add(new BigDecimal("5"));
+        balanceService.applyDeltas(DocumentType.SHIPMENT, null, Map.of(HOT, all.negate()));
+
+        assertAmount("0", available());
+        assertAmount("0", baseAmount());
+        assertAmount("0", shardSum());
+    }
+
+    private BigDecimal available() {
+        return balanceService.getAvailable(List.of(HOT)).get(HOT);
+    }
+
+    private BigDecimal baseAmount() {
+        return jdbcTemplate.queryForObject(
+                "select amount from balances where resource_id = ? and unit_id = ?",
+                BigDecimal.class, HOT.resourceId(), HOT.unitId());
+    }
+
+    private BigDecimal shardSum() {
+        return jdbcTemplate.queryForObject(
+                "select coalesce(sum(amount), 0) from balance_shards where resource_id = ? and unit_id = ?",
+                BigDecimal.class, HOT.resourceId(), HOT.unitId());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.TurnoverRowDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class BalanceSnapshotServiceTests extends PostgresTestSupport {
+
+    @Autowired
+    private BalanceSnapshotService snapshotService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Test
+    void asOfCountsOnlyMovementsUpToTheEndOfTheDay() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, resource, unit, "7"));
+
+        assertAsOf(today, resource, unit, "7");
+        assertAsOf(today.minusDays(1), resource, unit, "0");
+
+        // Same answers when the checkpoint lies before the date or after it. Two days back,
+        // so the day is closed even right after midnight.
+        snapshotService.createCheckpoints(today.minusDays(2));
+        assertAsOf(today, resource, unit, "7");
+        assertAsOf(today.minusDays(1), resource, unit, "0");
+        assertAsOf(today.minusDays(3), resource, unit, "0");
+    }
+
+    @Test
+    void backDatedReceiptCountsOnItsDocumentDateAndReplacesCoveredCheckpoints() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        snapshotService.createCheckpoints(today.minusDays(2));
+
+        receiptService.create(receipt(unique("R"), today.minusDays(5), resource, unit, "4"));
+
+        assertEquals(0, checkpointsFrom(today.minusDays(5)));
+        assertAsOf(today.minusDays(6), resource, unit, "0");
+        assertAsOf(today.minusDays(5), resource, unit, "4");
+        assertAsOf(today.minusDays(2), resource, unit, "4");
+
+        snapshotService.createCheckpoints(today.minusDays(2));
+        assertAsOf(today.minusDays(6), resource, unit, "0");
+        assertAsOf(today.minusDays(5), resource, unit, "4");
+        assertAsOf(today, resource, unit, "4");
+    }
+
+    @Test
+    void dateEditMovesTheAmountBetweenDays() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        ReceiptDto created = receiptService.create(receipt(unique("R"), today.minusDays(3), resource, unit, "3"));
+        snapshotService.createCheckpoints(today.minusDays(2));
+        assertAsOf(today.minusDays(4), resource, unit, "0");
+
+        receiptService.update(created.getId(),
+                receipt(created.getNumber(), today.minusDays(6), resource, unit, "3"));
+
+        assertAsOf(today.minusDays(7), resource, unit, "0");
+        assertAsOf(today.minusDays(4), resource, unit, "3");
+        assertAsOf(today.minusDays(2), resource, unit, "3");
+    }
+
+    @Test
+    void asOfEqualsTheTurnoverClosingBalance() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today.minusDays(4), resource, unit, "5"));
+        ReceiptDto moved = receiptService.create(receipt(unique("R"), today.minusDays(1), resource, unit, "2"));
+        snapshotService.createCheckpoints(today.minusDays(2));
+        receiptService.update(moved.getId(), receipt(moved.getNumber(), today.minusDays(3), resource, unit, "2"));
+
+        for (int daysAgo = 0; daysAgo <= 5; daysAgo++) {
+            LocalDate day = today.minusDays(daysAgo);
+            assertAmount(closing(today.minusDays(10), day, resource, unit).toPlainString(),
+                    asOf(day, resource, unit));
+        }
+    }
+
+    @Test
+    void balancesThatPredateTheDocumentsCountInBothReports() {
+        // Sugar / kg is seeded with 100 on hand and no documents.
+        LocalDate today = LocalDate.now();
+        assertAmount("100", asOf(today, 1L, 1L));
+        assertAmount("100", closing(null, today, 1L, 1L));
+    }
+
+    private void assertAsOf(LocalDate date, Long resource, Long unit, String expected) {
+        assertAmount(expected, asOf(date, resource, unit));
+    }
+
+    private BigDecimal asOf(LocalDate date, Long resource, Long unit) {
+        List<BalanceDto> rows = snapshotService.searchAsOf(date, List.of(resource), List.of(unit));
+        return rows.isEmpty() ? BigDecimal.ZERO : rows.get(0).getAmount();
+    }
+
+    private BigDecimal closing(LocalDate from, LocalDate to, Long resource, Long unit) {
+        List<TurnoverRowDto> rows = new ArrayList<>();
+        reportService.streamTurnover(from, to, List.of(resource), List.of(unit), rows::add);
+        return rows.isEmpty() ? BigDecimal.ZERO : rows.get(0).closing();
+    }
+
+    private int checkpointsFrom(LocalDate date) {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from balance_checkpoints where snapshot_date >= ?", Integer.class, date);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.ShipmentDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+class DailyMovementServiceTests extends PostgresTestSupport {
+
+    // Non-zero days of one key, as "date in out" lines.
+    private static final String ROLLUP_SQL = """
+            select date || ' ' || qty_in || ' ' || qty_out
+            from daily_movements
+            where resource_id = ? and unit_id = ? and (qty_in <> 0 or qty_out <> 0)
+            order by date
+            """;
+
+    private static final String FROM_DOCUMENTS_SQL = """
+            select k.date || ' ' || cast(sum(k.qty_in) as numeric(19,3)) || ' ' || cast(sum(k.qty_out) as numeric(19,3))
+            from (
+                select r.date, ri.quantity as qty_in, 0 as qty_out
+                from receipt_items ri
+                join receipts r on r.id = ri.receipt_id
+                where ri.resource_id = ? and ri.unit_id = ?
+                union all
+                select s.date, 0, si.quantity
+                from shipment_items si
+                join shipments s on s.id = si.shipment_id
+                where s.state = 'SIGNED' and si.resource_id = ? and si.unit_id = ?
+            ) k
+            group by k.date
+            having sum(k.qty_in) <> 0 or sum(k.qty_out) <> 0
+            order by k.date
+            """;
+
+    @Autowired
+    private DailyMovementService dailyMovementService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Test
+    void rollupFollowsCreateUpdateAndDelete() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+
+        ReceiptDto first = receiptService.create(receipt(unique("R"), today.minusDays(2), resource, unit, "5"));
+        ReceiptDto second = receiptService.create(receipt(unique("R"), today.minusDays(2), resource, unit, "3"));
+        assertRollupMatchesDocuments(resource, unit);
+
+        ShipmentDto shipped = shipmentService.create(shipment(unique("S"), today.minusDays(1), client, resource, unit, "4"));
+        assertRollupMatchesDocuments(resource, unit);
+        shipmentService.sign(shipped.getId());
+        assertRollupMatchesDocuments(resource, unit);
+
+        receiptService.update(first.getId(), receipt(first.getNumber(), today.minusDays(2), resource, unit, "6"));
+        assertRollupMatchesDocuments(resource, unit);
+        receiptService.update(second.getId(), receipt(second.getNumber(), today.minusDays(4), resource, unit, "3"));
+        assertRollupMatchesDocuments(resource, unit);
+
+        shipmentService.revoke(shipped.getId());
+        assertRollupMatchesDocuments(resource, unit);
+        receiptService.delete(second.getId());
+        assertRollupMatchesDocuments(resource, unit);
+        assertFalse(rollup(resource, unit).isEmpty());
+    }
+
+    @Test
+    void rebuildReproducesTheSameRows() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        ReceiptDto moved = receiptService.create(receipt(unique("R"), today.minusDays(3), resource, unit, "9"));
+        receiptService.create(receipt(unique("R"), today.minusDays(1), resource, unit, "2"));
+        ShipmentDto shipped = shipmentService.create(shipment(unique("S"), today, client, resource, unit, "7"));
+        shipmentService.sign(shipped.getId());
+        receiptService.update(moved.getId(), receipt(moved.getNumber(), today.minusDays(2), resource, unit, "9"));
+        List<String> before = rollup(resource, unit);
+
+        // A damaged row inside the range and one outside it.
+        jdbcTemplate.update("update daily_movements set qty_in = 999 where resource_id = ? and unit_id = ? and date = ?",
+                resource, unit, today.minusDays(2));
+        jdbcTemplate.update("""
+                insert into daily_movements (date, resource_id, unit_id, qty_in, qty_out)
+                values (?, ?, ?, 1, 0)
+                """, today.minusDays(30), resource, unit);
+
+        dailyMovementService.rebuild(today.minusDays(5), today);
+
+        List<String> after = rollup(resource, unit);
+        assertEquals(before, after.subList(1, after.size()));
+        assertEquals(today.minusDays(30) + " 1.000 0.000", after.get(0));
+
+        dailyMovementService.rebuild(null, null);
+        assertEquals(before, rollup(resource, unit));
+        assertRollupMatchesDocuments(resource, unit);
+    }
+
+    private List<String> rollup(Long resource, Long unit) {
+        return jdbcTemplate.queryForList(ROLLUP_SQL, String.class, resource, unit);
+    }
+
+    private void assertRollupMatchesDocuments(Long resource, Long unit) {
+        List<String> direct = jdbcTemplate.queryForList(FROM_DOCUMENTS_SQL, String.class, resource, unit, resource, unit);
+        assertEquals(direct, rollup(resource, unit));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.entity.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentNumberIndexTests {
+
+    private static final String LOAD_RECEIPTS = "select number from receipts";
+    private static final String LOAD_SHIPMENTS = "select number from shipments";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InvalidationBus invalidationBus = mock(InvalidationBus.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DocumentNumberIndex index;
+
+    @BeforeEach
+    void load() throws InterruptedException {
+        when(jdbcTemplate.queryForList(LOAD_RECEIPTS, String.class))
+                .thenReturn(List.of("R-010", "R-001", "r-003", "R-002", "X-1"));
+        when(jdbcTemplate.queryForList(LOAD_SHIPMENTS, String.class))
+                .thenReturn(List.of("S-1"));
+        index = loaded(new DocumentNumberIndex(jdbcTemplate, invalidationBus, meterRegistry));
+    }
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void prefixFindStopsAtTheLimitInCaseInsensitiveOrder() {
+        assertEquals(List.of("R-001", "R-002"), index.find(DocumentType.RECEIPT, "R-0", 2));
+        assertEquals(List.of("R-001", "R-002", "r-003", "R-010"), index.find(DocumentType.RECEIPT, "R-0", null));
+        assertEquals(List.of(), index.find(DocumentType.RECEIPT, "R-1", 5));
+        assertEquals(List.of("S-1"), index.find(DocumentType.SHIPMENT, "", null));
+    }
+
+    @Test
+    void lookupFoldsCaseButReturnsStoredNumbers() {
+        assertEquals(List.of("R-001", "R-002", "r-003"), index.find(DocumentType.RECEIPT, " r-00", null));
+        assertEquals(List.of("r-003"), index.find(DocumentType.RECEIPT, "R-003", null));
+    }
+
+    @Test
+    void renameRemovesTheOldNumberAndAddsTheNewOne() {
+        index.recordChange(DocumentType.RECEIPT, "r-001", "R-100");
+
+        assertEquals(List.of("R-002", "r-003", "R-010", "R-100"), index.find(DocumentType.RECEIPT, "r-", null));
+    }
+
+    @Test
+    void changesApplyOnlyWhenTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.recordChange(DocumentType.RECEIPT, null, "R-050");
+        index.recordChange(DocumentType.SHIPMENT, "S-1", null);
+
+        assertEquals(List.of(), index.find(DocumentType.RECEIPT, "R-05", null));
+        verify(invalidationBus, never()).publish(anyString(), any());
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of("R-050"), index.find(DocumentType.RECEIPT, "R-05", null));
+        assertEquals(List.of(), index.find(DocumentType.SHIPMENT, "", null));
+        verify(invalidationBus, times(1)).publish(eq(DocumentNumberIndex.CACHE_NAME), anyString());
+    }
+
+    @Test
+    void rolledBackChangesAreDropped() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.recordChange(DocumentType.RECEIPT, null, "R-050");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(List.of(), index.find(DocumentType.RECEIPT, "R-05", null));
+        verify(invalidationBus, never()).publish(anyString(), any());
+    }
+
+    @Test
+    void publishedPayloadReplaysOnAnotherNode() throws InterruptedException {
+        TransactionSynchronizationManager.initSynchronization();
+        index.recordChange(DocumentType.RECEIPT, "R-001", "R-101");
+        index.recordChange(DocumentType.RECEIPT, null, "R-102");
+        index.recordChange(DocumentType.SHIPMENT, "S-1", null);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(invalidationBus).publish(eq(DocumentNumberIndex.CACHE_NAME), key.capture());
+        assertEquals("RECEIPT\tR-001\tR-101\nRECEIPT\t\tR-102\nSHIPMENT\tS-1\t", key.getValue());
+
+        DocumentNumberIndex other = loaded(new DocumentNumberIndex(jdbcTemplate, invalidationBus, meterRegistry));
+        try {
+            other.onRemoteInvalidation(new RemoteInvalidationEvent(DocumentNumberIndex.CACHE_NAME, key.getValue()));
+
+            assertEquals(index.find(DocumentType.RECEIPT, "", null), other.find(DocumentType.RECEIPT, "", null));
+            assertEquals(List.of(), other.find(DocumentType.SHIPMENT, "", null));
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    void oversizedOrUnencodableBatchesAskForAFullReload() {
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 300; i++) {
+            index.recordChange(DocumentType.RECEIPT, null, "BULK-" + "0".repeat(20) + i);
+        }
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        verify(invalidationBus, times(1)).publish(eq(DocumentNumberIndex.CACHE_NAME), isNull());
+
+        index.recordChange(DocumentType.SHIPMENT, null, "S\t2");
+        verify(invalidationBus, times(2)).publish(eq(DocumentNumberIndex.CACHE_NAME), isNull());
+    }
+
+    @Test
+    void malformedOrEmptyMessagesReloadEverything() throws InterruptedException {
+        when(jdbcTemplate.queryForList(LOAD_RECEIPTS, String.class)).thenReturn(List.of("R-900"));
+        index.onRemoteInvalidation(new RemoteInvalidationEvent(DocumentNumberIndex.CACHE_NAME, "INVOICE\tA\tB"));
+        await(List.of("R-900"), "R-9");
+
+        when(jdbcTemplate.queryForList(LOAD_RECEIPTS, String.class)).thenReturn(List.of("R-901"));
+        index.onRemoteInvalidation(new RemoteInvalidationEvent(DocumentNumberIndex.CACHE_NAME, null));
+        await(List.of("R-901"), "R-9");
+
+        // Messages for other caches leave the index alone.
+        when(jdbcTemplate.queryForList(LOAD_RECEIPTS, String.class)).thenReturn(List.of("R-902"));
+        index.onRemoteInvalidation(new RemoteInvalidationEvent(ReferenceDataCache.CACHE_NAME, null));
+        Thread.sleep(100);
+        assertEquals(List.of("R-901"), index.find(DocumentType.RECEIPT, "R-9", null));
+    }
+
+    private void await(List<String> expected, String prefix) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(5));
+        while (Instant.now().isBefore(deadline)) {
+            if (index.find(DocumentType.RECEIPT, prefix, null).equals(expected)) return;
+            Thread.sleep(10);
+        }
+        fail("Receipt numbers " + prefix + "* never became " + expected);
+    }
+
+    // Runs the registered synchronizations as the transaction manager would.
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertNotNull(synchronizations);
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(s -> s.beforeCommit(false));
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+
+    // Queues the initial load of both indexes and waits until lookups are answered from memory.
+    private DocumentNumberIndex loaded(DocumentNumberIndex index) throws InterruptedException {
+        index.onRemoteInvalidation(new RemoteInvalidationEvent(null, null));
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(5));
+        while (Instant.now().isBefore(deadline)) {
+            if (!index.find(DocumentType.RECEIPT, "", null).isEmpty()
+                    && !index.find(DocumentType.SHIPMENT, "", null).isEmpty()) {
+                return index;
+            }
+            Thread.sleep(10);
+        }
+        fail("Number index did not load");
+        return index;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest
+class InvalidationBusTests extends PostgresTestSupport {
+
+    private static final String CHANNEL = "warehouse_invalidation_test";
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Two nodes on the same database, each recording the events it raises locally.
+    private final List<Object> firstEvents = new CopyOnWriteArrayList<>();
+    private final List<Object> secondEvents = new CopyOnWriteArrayList<>();
+    private InvalidationBus first;
+    private InvalidationBus second;
+
+    @BeforeEach
+    void startNodes() throws InterruptedException {
+        first = node(firstEvents);
+        second = node(secondEvents);
+        // Each node raises an "everything" event once it is listening.
+        RemoteInvalidationEvent resync = new RemoteInvalidationEvent(null, null);
+        await(firstEvents, resync);
+        await(secondEvents, resync);
+        firstEvents.clear();
+        secondEvents.clear();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    void committedPublishReachesTheOtherNode() throws InterruptedException {
+        inTransaction(() -> first.publish("reference", "units"));
+
+        await(secondEvents, new RemoteInvalidationEvent("reference", "units"));
+        assertEquals(List.of(new RemoteInvalidationEvent("reference", "units")), secondEvents);
+    }
+
+    @Test
+    void rolledBackPublishIsNeverDelivered() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            first.publish("reference", "rolled-back");
+            status.setRollbackOnly();
+        });
+        // Notifications arrive in commit order, so once this one is in, the other would be too.
+        inTransaction(() -> first.publish("reference", "marker"));
+
+        await(secondEvents, new RemoteInvalidationEvent("reference", "marker"));
+        assertEquals(List.of(new RemoteInvalidationEvent("reference", "marker")), secondEvents);
+    }
+
+    @Test
+    void nodeIgnoresItsOwnMessages() throws InterruptedException {
+        inTransaction(() -> first.publish("reference", "resources"));
+        inTransaction(() -> second.publish("reference", "marker"));
+
+        await(firstEvents, new RemoteInvalidationEvent("reference", "marker"));
+        assertEquals(List.of(new RemoteInvalidationEvent("reference", "marker")), firstEvents);
+        await(secondEvents, new RemoteInvalidationEvent("reference", "resources"));
+    }
+
+    private InvalidationBus node(List<Object> events) {
+        InvalidationBus bus = new InvalidationBus(jdbcTemplate, events::add, dataSourceProperties,
+                new SimpleMeterRegistry(), true, CHANNEL, 10, 50);
+        bus.start();
+        return bus;
+    }
+
+    private void inTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+
+    private static void await(List<Object> events, Object expected) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        while (Instant.now().isBefore(deadline)) {
+            if (events.contains(expected)) return;
+            Thread.sleep(10);
+        }
+        fail("No " + expected + " within 10s, got " + events);
+    }
+}
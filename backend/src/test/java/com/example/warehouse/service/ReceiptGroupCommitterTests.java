@@ -0,0 +1,91 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {
+        "receipts.group-commit.enabled=true",
+        "receipts.group-commit.window-ms=200",
+        "receipts.group-commit.max-batch=64"
+})
+class ReceiptGroupCommitterTests extends PostgresTestSupport {
+
+    @Autowired
+    private ReceiptGroupCommitter groupCommitter;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Test
+    void concurrentCreatesAllCommit() throws Exception {
+        Long resource = newResource();
+        Long unit = newUnit();
+        List<ReceiptDto> dtos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) dtos.add(receipt(unique("G"), LocalDate.now(), resource, unit, "1"));
+
+        List<Future<ReceiptDto>> results = createConcurrently(dtos);
+        for (Future<ReceiptDto> f : results) assertNotNull(f.get().getId());
+
+        assertAmount("8", balance(resource, unit).getAmount());
+        assertAmount("8", ledgerSum(resource, unit));
+    }
+
+    @Test
+    void failedGroupFallsBackSoOnlyTheOffendingReceiptFails() throws Exception {
+        Long resource = newResource();
+        Long unit = newUnit();
+        String taken = receiptService.create(receipt(unique("G"), LocalDate.now(), resource, unit, "1")).getNumber();
+
+        List<ReceiptDto> dtos = new ArrayList<>();
+        for (int i = 0; i < 6; i++) dtos.add(receipt(unique("G"), LocalDate.now(), resource, unit, "1"));
+        dtos.add(receipt(taken, LocalDate.now(), resource, unit, "100"));
+
+        int created = 0;
+        int rejected = 0;
+        for (Future<ReceiptDto> f : createConcurrently(dtos)) {
+            try {
+                f.get();
+                created++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(BusinessException.class, e.getCause());
+                rejected++;
+            }
+        }
+        assertEquals(6, created);
+        assertEquals(1, rejected);
+        assertAmount("7", balance(resource, unit).getAmount());
+        assertAmount("7", ledgerSum(resource, unit));
+    }
+
+    private List<Future<ReceiptDto>> createConcurrently(List<ReceiptDto> dtos) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ReceiptDto>> results = new ArrayList<>();
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        for (ReceiptDto dto : dtos) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return groupCommitter.create(dto);
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        return results;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.CursorPage;
+import com.example.warehouse.dto.ReceiptListItemDto;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.ReceiptRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest
+class ReceiptServiceTests extends PostgresTestSupport {
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @SpyBean
+    private ReceiptRepository receiptRepository;
+
+    @Test
+    void cursorWalksEveryReceiptOnceInDateThenIdOrder() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        List<Long> created = new ArrayList<>();
+        // Two receipts share each of the first two dates, so the id breaks ties across pages.
+        for (int daysAgo : new int[] {0, 0, 1, 1, 3}) {
+            created.add(receiptService.create(
+                    receipt(unique("R"), today.minusDays(daysAgo), resource, unit, "1")).getId());
+        }
+
+        List<ReceiptListItemDto> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<ReceiptListItemDto> page = receiptService.searchPage(
+                    null, null, null, List.of(resource), null, cursor, 2);
+            seen.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        List<ReceiptListItemDto> expected = new ArrayList<>(seen);
+        expected.sort(Comparator.comparing(ReceiptListItemDto::getDate)
+                .thenComparing(ReceiptListItemDto::getId).reversed());
+        assertEquals(expected, seen);
+        assertEquals(created.stream().sorted().toList(),
+                seen.stream().map(ReceiptListItemDto::getId).sorted().toList());
+    }
+
+    @Test
+    void cursorComesFromTheKeysEvenWhenTheirRowsAreGone() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        for (int daysAgo = 0; daysAgo < 3; daysAgo++) {
+            receiptService.create(receipt(unique("R"), today.minusDays(daysAgo), resource, unit, "1"));
+        }
+        CursorPage<ReceiptListItemDto> full = receiptService.searchPage(
+                null, null, null, List.of(resource), null, null, 2);
+
+        // Every row of the page deleted between the key query and the row fetch.
+        doReturn(List.of()).when(receiptRepository).findAllWithItemsByIdIn(any());
+        CursorPage<ReceiptListItemDto> emptied = receiptService.searchPage(
+                null, null, null, List.of(resource), null, null, 2);
+
+        assertTrue(emptied.items().isEmpty());
+        assertEquals(full.nextCursor(), emptied.nextCursor());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(BusinessException.class,
+                () -> receiptService.searchPage(null, null, null, null, null, "not-a-cursor", 2));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.entity.EntityState;
+import com.example.warehouse.exception.BusinessException;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ReferenceResolverTests extends PostgresTestSupport {
+
+    @Autowired
+    private ReferenceResolver referenceResolver;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private UnitService unitService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void reportsEveryMissingAndArchivedReferenceAtOnce() {
+        Long resource = newResource();
+        Long archivedResource = newResource();
+        Long unit = newUnit();
+        Long archivedUnit = newUnit();
+        String archivedResourceName = resourceService.setState(archivedResource, EntityState.ARCHIVED).getName();
+        String archivedUnitName = unitService.setState(archivedUnit, EntityState.ARCHIVED).getName();
+
+        BusinessException e = assertThrows(BusinessException.class, () -> referenceResolver.resolveActive(
+                List.of(resource, archivedResource, -2L, -1L, resource),
+                List.of(unit, archivedUnit, -3L)));
+
+        assertEquals("Resource not found: [-2, -1]"
+                + "; Resource is archived: [" + archivedResourceName + "]"
+                + "; Unit not found: [-3]"
+                + "; Unit is archived: [" + archivedUnitName + "]", e.getMessage());
+    }
+
+    @Test
+    void attachesReferencesToTheCallersSession() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        // Warm the cache, so the ids below come from its snapshot.
+        referenceResolver.resolveActive(List.of(resource), List.of(unit));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ReferenceResolver.References refs = referenceResolver.resolveActive(List.of(resource), List.of(unit));
+
+            assertTrue(entityManager.contains(refs.resource(resource)));
+            assertTrue(entityManager.contains(refs.unit(unit)));
+            assertSame(refs.resource(resource), refs.resource(resource));
+            assertNull(refs.resource(-1L));
+        });
+    }
+}
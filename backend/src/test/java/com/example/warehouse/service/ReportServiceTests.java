@@ -0,0 +1,97 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.ReceiptDto;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.dto.TurnoverRowDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ReportServiceTests extends PostgresTestSupport {
+
+    // Turnover of one key straight from the document lines: opening (before the range),
+    // received, shipped (signed shipments only).
+    private static final String FROM_DOCUMENTS_SQL = """
+            select coalesce(sum(k.qty_in - k.qty_out) filter (where k.date < ?), 0),
+                   coalesce(sum(k.qty_in) filter (where k.date >= ?), 0),
+                   coalesce(sum(k.qty_out) filter (where k.date >= ?), 0)
+            from (
+                select r.date, ri.quantity as qty_in, 0 as qty_out
+                from receipt_items ri
+                join receipts r on r.id = ri.receipt_id
+                where ri.resource_id = ? and ri.unit_id = ?
+                union all
+                select s.date, 0, si.quantity
+                from shipment_items si
+                join shipments s on s.id = si.shipment_id
+                where s.state = 'SIGNED' and si.resource_id = ? and si.unit_id = ?
+            ) k
+            where k.date <= ?
+            """;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Test
+    void turnoverMatchesTheDocumentLinesThroughEdits() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(5);
+        LocalDate to = today.minusDays(1);
+
+        receiptService.create(receipt(unique("R"), today.minusDays(8), resource, unit, "10"));
+        ReceiptDto inRange = receiptService.create(receipt(unique("R"), today.minusDays(3), resource, unit, "6"));
+        ReceiptDto after = receiptService.create(receipt(unique("R"), today, resource, unit, "2"));
+        ShipmentDto shipped = shipmentService.create(shipment(unique("S"), today.minusDays(2), client, resource, unit, "4"));
+        shipmentService.sign(shipped.getId());
+        shipmentService.create(shipment(unique("S"), today.minusDays(2), client, resource, unit, "1"));
+        assertTurnover(from, to, resource, unit, "10", "6", "4", "12");
+
+        // Out of the range, then back into it with another quantity.
+        receiptService.update(inRange.getId(), receipt(inRange.getNumber(), today.minusDays(7), resource, unit, "6"));
+        assertTurnover(from, to, resource, unit, "16", "0", "4", "12");
+        receiptService.update(after.getId(), receipt(after.getNumber(), today.minusDays(4), resource, unit, "3"));
+        assertTurnover(from, to, resource, unit, "16", "3", "4", "15");
+
+        shipmentService.revoke(shipped.getId());
+        receiptService.delete(inRange.getId());
+        assertTurnover(from, to, resource, unit, "10", "3", "0", "13");
+    }
+
+    private void assertTurnover(LocalDate from, LocalDate to, Long resource, Long unit,
+                                String opening, String received, String shipped, String closing) {
+        List<TurnoverRowDto> rows = new ArrayList<>();
+        reportService.streamTurnover(from, to, List.of(resource), List.of(unit), rows::add);
+        assertEquals(1, rows.size());
+        TurnoverRowDto row = rows.get(0);
+
+        BigDecimal[] direct = jdbcTemplate.queryForObject(FROM_DOCUMENTS_SQL, (rs, n) -> new BigDecimal[]{
+                rs.getBigDecimal(1), rs.getBigDecimal(2), rs.getBigDecimal(3)
+        }, from, from, from, resource, unit, resource, unit, to);
+        assertAmount(direct[0].toPlainString(), row.opening());
+        assertAmount(direct[1].toPlainString(), row.received());
+        assertAmount(direct[2].toPlainString(), row.shipped());
+
+        assertAmount(opening, row.opening());
+        assertAmount(received, row.received());
+        assertAmount(shipped, row.shipped());
+        assertAmount(closing, row.closing());
+    }
+}
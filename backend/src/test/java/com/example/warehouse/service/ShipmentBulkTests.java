@@ -0,0 +1,89 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.dto.ShipmentActionResultDto;
+import com.example.warehouse.dto.ShipmentActionResultDto.Status;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.entity.ShipmentState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class ShipmentBulkTests extends PostgresTestSupport {
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Test
+    void signAllSignsWhatFitsAndReportsTheRest() {
+        Long tight = newResource();
+        Long plenty = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, tight, unit, "10"));
+        receiptService.create(receipt(unique("R"), today, plenty, unit, "10"));
+
+        ShipmentDto fits = shipmentService.create(shipment(unique("S"), today, client, tight, unit, "4"));
+        ShipmentDto overdraws = shipmentService.create(shipment(unique("S"), today, client, tight, unit, "5"));
+        ShipmentDto other = shipmentService.create(shipment(unique("S"), today, client, plenty, unit, "3"));
+        ShipmentDto signed = shipmentService.create(shipment(unique("S"), today, client, plenty, unit, "1"));
+        shipmentService.sign(signed.getId());
+        // Reserved before V12: 9 reserved against 6 on hand, so only the first draft fits.
+        jdbcTemplate.update("update balances set amount = 6 where resource_id = ? and unit_id = ?", tight, unit);
+
+        List<ShipmentActionResultDto> results = shipmentService.signAll(List.of(
+                fits.getId(), overdraws.getId(), -1L, signed.getId(), other.getId(), fits.getId()));
+
+        assertEquals(List.of(fits.getId(), overdraws.getId(), -1L, signed.getId(), other.getId()),
+                results.stream().map(ShipmentActionResultDto::id).toList());
+        assertEquals(List.of(Status.DONE, Status.FAILED, Status.NOT_FOUND, Status.UNCHANGED, Status.DONE),
+                results.stream().map(ShipmentActionResultDto::status).toList());
+        assertNotNull(results.get(1).message());
+        assertNull(results.get(0).message());
+
+        assertLevels(tight, unit, "2", "5");
+        assertLevels(plenty, unit, "6", "0");
+        assertAmount("6", ledgerSum(plenty, unit));
+        assertEquals(ShipmentState.SIGNED, shipmentService.getById(fits.getId()).getState());
+        assertEquals(ShipmentState.DRAFT, shipmentService.getById(overdraws.getId()).getState());
+    }
+
+    @Test
+    void revokeAllReturnsStockAndReservesItAgain() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+        ShipmentDto signed = shipmentService.create(shipment(unique("S"), today, client, resource, unit, "4"));
+        ShipmentDto draft = shipmentService.create(shipment(unique("S"), today, client, resource, unit, "2"));
+        shipmentService.signAll(List.of(signed.getId()));
+        assertLevels(resource, unit, "6", "2");
+
+        List<ShipmentActionResultDto> results = shipmentService.revokeAll(List.of(signed.getId(), draft.getId(), -1L));
+
+        assertEquals(List.of(Status.DONE, Status.UNCHANGED, Status.NOT_FOUND),
+                results.stream().map(ShipmentActionResultDto::status).toList());
+        assertLevels(resource, unit, "10", "6");
+        assertAmount("10", ledgerSum(resource, unit));
+    }
+
+    private void assertLevels(Long resource, Long unit, String amount, String reserved) {
+        BalanceDto b = balance(resource, unit);
+        assertAmount(amount, b.getAmount());
+        assertAmount(reserved, b.getReserved());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.PostgresTestSupport;
+import com.example.warehouse.dto.BalanceDto;
+import com.example.warehouse.dto.CursorPage;
+import com.example.warehouse.dto.ShipmentDto;
+import com.example.warehouse.dto.ShipmentListItemDto;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.ShipmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest
+class ShipmentServiceTests extends PostgresTestSupport {
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @SpyBean
+    private ShipmentRepository shipmentRepository;
+
+    @Test
+    void draftsReserveStockUntilSignedOrDeleted() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+
+        ShipmentDto draft = shipmentService.create(shipment(unique("S"), today, client, resource, unit, "4"));
+        assertLevels(resource, unit, "10", "4");
+
+        // Only 6 are still available.
+        assertThrows(BusinessException.class,
+                () -> shipmentService.create(shipment(unique("S"), today, client, resource, unit, "7")));
+        assertLevels(resource, unit, "10", "4");
+
+        ShipmentDto changed = shipment(draft.getNumber(), today, client, resource, unit, "6");
+        shipmentService.update(draft.getId(), changed);
+        assertLevels(resource, unit, "10", "6");
+
+        shipmentService.sign(draft.getId());
+        assertLevels(resource, unit, "4", "0");
+
+        shipmentService.revoke(draft.getId());
+        assertLevels(resource, unit, "10", "6");
+
+        shipmentService.delete(draft.getId());
+        assertLevels(resource, unit, "10", "0");
+        assertAmount("10", ledgerSum(resource, unit));
+    }
+
+    @Test
+    void signingCannotOverdrawStockOnHand() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, resource, unit, "5"));
+        ShipmentDto draft = shipmentService.create(shipment(unique("S"), today, newClient(), resource, unit, "5"));
+
+        // A draft reserved before V12 may hold more than is on hand.
+        jdbcTemplate.update("update balances set amount = 2 where resource_id = ? and unit_id = ?", resource, unit);
+
+        assertThrows(BusinessException.class, () -> shipmentService.sign(draft.getId()));
+        assertLevels(resource, unit, "2", "5");
+    }
+
+    @Test
+    void pagesFollowTheCursorAndCountMatches() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+        for (int i = 0; i < 3; i++) {
+            shipmentService.create(shipment(unique("S"), today.minusDays(i), client, resource, unit, "1"));
+        }
+
+        CursorPage<ShipmentListItemDto> first = shipmentService.searchPage(
+                null, null, null, List.of(resource), null, null, null, null, 2, true);
+        assertEquals(2, first.items().size());
+        assertEquals(3L, first.total());
+        assertFalse(first.totalEstimated());
+        assertNotNull(first.nextCursor());
+
+        CursorPage<ShipmentListItemDto> second = shipmentService.searchPage(
+                null, null, null, List.of(resource), null, null, null, first.nextCursor(), 2, false);
+        assertEquals(1, second.items().size());
+        assertNull(second.nextCursor());
+        assertNull(second.total());
+        assertEquals(today.minusDays(2), second.items().get(0).getDate());
+    }
+
+    @Test
+    void cursorComesFromTheKeysEvenWhenTheirRowsAreGone() {
+        Long resource = newResource();
+        Long unit = newUnit();
+        Long client = newClient();
+        LocalDate today = LocalDate.now();
+        receiptService.create(receipt(unique("R"), today, resource, unit, "10"));
+        for (int i = 0; i < 3; i++) {
+            shipmentService.create(shipment(unique("S"), today.minusDays(i), client, resource, unit, "1"));
+        }
+        CursorPage<ShipmentListItemDto> full = shipmentService.searchPage(
+                null, null, null, List.of(resource), null, null, null, null, 2, false);
+
+        // Every row of the page deleted between the key query and the row fetch.
+        doReturn(List.of()).when(shipmentRepository).findAllWithClientAndItemsByIdIn(any());
+        CursorPage<ShipmentListItemDto> emptied = shipmentService.searchPage(
+                null, null, null, List.of(resource), null, null, null, null, 2, false);
+
+        assertTrue(emptied.items().isEmpty());
+        assertEquals(full.nextCursor(), emptied.nextCursor());
+    }
+
+    private void assertLevels(Long resource, Long unit, String amount, String reserved) {
+        BalanceDto b = balance(resource, unit);
+        assertAmount(amount, b.getAmount());
+        assertAmount(reserved, b.getReserved());
+    }
+}
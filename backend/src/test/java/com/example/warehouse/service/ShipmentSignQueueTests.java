@@ -0,0 +1,77 @@
+package com.example.warehouse.service;
+
+import com.example.warehouse.dto.SignJobDto;
+import com.example.warehouse.exception.BusinessException;
+import com.example.warehouse.repository.ShipmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShipmentSignQueueTests {
+
+    private final ShipmentService shipmentService = mock(ShipmentService.class);
+    private final ShipmentRepository shipmentRepository = mock(ShipmentRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShipmentSignQueue queue =
+            new ShipmentSignQueue(shipmentService, shipmentRepository, meterRegistry, true, 2, 60);
+
+    @AfterEach
+    void shutdown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void unexpectedFailureKeepsItsDetailsOutOfTheJob() throws InterruptedException {
+        doThrow(new IllegalStateException("connection to db-internal:5432 refused"))
+                .when(shipmentService).sign(1L);
+
+        SignJobDto job = await(submit(1L));
+
+        assertEquals(SignJobDto.Status.FAILED, job.status());
+        assertEquals("Internal server error", job.message());
+        assertFalse(job.message().contains("db-internal"));
+        assertEquals(1.0, meterRegistry.counter(ShipmentSignQueue.FAILURES_METRIC,
+                "exception", "IllegalStateException").count());
+    }
+
+    @Test
+    void businessAndConflictFailuresAnswerLikeTheEndpoint() throws InterruptedException {
+        doThrow(new BusinessException("Not enough stock")).when(shipmentService).sign(1L);
+        doThrow(new CannotAcquireLockException("deadlock")).when(shipmentService).sign(2L);
+
+        SignJobDto rejected = await(submit(1L));
+        SignJobDto conflicted = await(submit(2L));
+
+        assertEquals("Not enough stock", rejected.message());
+        assertEquals("Concurrent modification, please retry", conflicted.message());
+        assertEquals(SignJobDto.Status.FAILED, conflicted.status());
+    }
+
+    private SignJobDto submit(Long shipmentId) {
+        when(shipmentRepository.existsById(shipmentId)).thenReturn(true);
+        when(shipmentRepository.findLowestResourceId(shipmentId)).thenReturn(shipmentId);
+        return queue.submit(shipmentId);
+    }
+
+    private SignJobDto await(SignJobDto submitted) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        while (Instant.now().isBefore(deadline)) {
+            SignJobDto job = queue.get(submitted.id());
+            if (job.finishedAt() != null) return job;
+            Thread.sleep(10);
+        }
+        fail("Sign job " + submitted.id() + " did not finish");
+        return null;
+    }
+}
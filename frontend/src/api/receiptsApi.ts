@@ -1,5 +1,6 @@
 import { http } from "./http";
 import type { Receipt, ReceiptItem } from "../types/receipt";
+import type { CursorPage } from "../types/common";
 
 export type ReceiptListParams = {
     from?: string;
@@ -10,14 +11,20 @@ export type ReceiptListParams = {
 };
 
 export type ReceiptPayload = {
+    version?: number; // the version being edited; a stale one is rejected with 409
     number: string;
     date: string; // YYYY-MM-DD
     items: ReceiptItem[];
 };
 
 export const receiptsApi = {
-    async list(params?: ReceiptListParams): Promise<Receipt[]> {
-        const { data } = await http.get<Receipt[]>("/receipts", { params });
+    async list(params?: ReceiptListParams, cursor?: string): Promise<CursorPage<Receipt>> {
+        const res = await http.get<Receipt[]>("/receipts", { params: { ...params, cursor } });
+        return { items: res.data, nextCursor: res.headers["x-next-cursor"] || undefined };
+    },
+
+    async numbers(prefix?: string, limit?: number): Promise<string[]> {
+        const { data } = await http.get<string[]>("/receipts/numbers", { params: { prefix, limit } });
         return data;
     },
 
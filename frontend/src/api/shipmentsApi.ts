@@ -1,7 +1,9 @@
 import { http } from "./http";
 import type { Shipment } from "../types/shipment";
+import type { CursorPage } from "../types/common";
 
 export type ShipmentPayload = {
+    version?: number; // the version being edited; a stale one is rejected with 409
     number: string;
     date: string;
     clientId: number;
@@ -19,11 +21,19 @@ export type ShipmentsListParams = {
 };
 
 export const shipmentsApi = {
-    list(params?: ShipmentsListParams) {
-        return http.get<Shipment[]>("/shipments", { params }).then((r) => r.data);
-    },
-    numbers() {
-        return http.get<string[]>("/shipments/numbers").then((r) => r.data);
+    /** One page; the total is counted only on request, so ask for it with the first page. */
+    async list(params?: ShipmentsListParams, cursor?: string, withTotal = false): Promise<CursorPage<Shipment>> {
+        const res = await http.get<Shipment[]>("/shipments", { params: { ...params, cursor, withTotal } });
+        const total = res.headers["x-total-count"];
+        return {
+            items: res.data,
+            nextCursor: res.headers["x-next-cursor"] || undefined,
+            total: total != null ? Number(total) : undefined,
+            totalEstimated: res.headers["x-total-count-estimated"] === "true",
+        };
+    },
+    numbers(prefix?: string, limit?: number) {
+        return http.get<string[]>("/shipments/numbers", { params: { prefix, limit } }).then((r) => r.data);
     },
     get(id: number) {
         return http.get<Shipment>(`/shipments/${id}`).then((r) => r.data);
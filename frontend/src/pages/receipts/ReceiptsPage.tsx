@@ -48,7 +48,7 @@ type ReceiptListItem = {
 };
 
 type ReceiptItem = { resourceId: number; unitId: number; quantity: any };
-type ReceiptFull = { id: number; number: string; date: string; items?: ReceiptItem[] };
+type ReceiptFull = { id: number; version: number; number: string; date: string; items?: ReceiptItem[] };
 
 type ItemDraft = ReceiptItem & { _key: string };
 
@@ -81,6 +81,7 @@ export default function ReceiptsPage() {
 
     const [rows, setRows] = React.useState<ReceiptListItem[]>([]);
     const [loading, setLoading] = React.useState(false);
+    const [nextCursor, setNextCursor] = React.useState<string | undefined>(undefined);
 
     const [openForm, setOpenForm] = React.useState(false);
     const [editing, setEditing] = React.useState<ReceiptFull | null>(null);
@@ -96,7 +97,8 @@ export default function ReceiptsPage() {
     const [from, setFrom] = React.useState<string>("");
     const [to, setTo] = React.useState<string>("");
 
-    const [allNumbers, setAllNumbers] = React.useState<string[]>([]);
+    const [numberInput, setNumberInput] = React.useState("");
+    const [numberOptions, setNumberOptions] = React.useState<string[]>([]);
     const [selectedNumbers, setSelectedNumbers] = React.useState<string[]>([]);
 
     const [resources, setResources] = React.useState<Resource[]>([]);
@@ -112,42 +114,59 @@ export default function ReceiptsPage() {
 
     const loadLookups = React.useCallback(async () => {
         try {
-            const [res, u, all] = await Promise.all([
+            const [res, u] = await Promise.all([
                 resourcesApi.list(undefined, "ACTIVE"),
                 unitsApi.list(undefined, "ACTIVE"),
-                receiptsApi.list(),
             ]);
 
             setResources(Array.isArray(res) ? res : []);
             setUnits(Array.isArray(u) ? u : []);
-
-            const arr = Array.isArray(all) ? all : [];
-            const nums = Array.from(new Set(arr.map((x: any) => (x.number ?? "").trim()).filter(Boolean))).sort((a, b) =>
-                a.localeCompare(b)
-            );
-            setAllNumbers(nums);
         } catch (e: unknown) {
             const err = e as { userMessage?: string; message?: string };
             notify(err.userMessage ?? err.message ?? "Failed to load filters", "error");
         }
     }, [notify]);
 
-    const loadReceipts = React.useCallback(async () => {
+    // Number suggestions come from the server's prefix index as the user types.
+    React.useEffect(() => {
+        let active = true;
+        const t = window.setTimeout(() => {
+            receiptsApi
+                .numbers(numberInput)
+                .then((n) => active && setNumberOptions(Array.isArray(n) ? n : []))
+                .catch(() => active && setNumberOptions([]));
+        }, 200);
+        return () => {
+            active = false;
+            window.clearTimeout(t);
+        };
+    }, [numberInput]);
+
+    // Without a cursor loads the first page; with one appends the next page to the rows.
+    const loadReceipts = React.useCallback(async (cursor?: string) => {
         setLoading(true);
         try {
-            const data = await receiptsApi.list({
-                from: from.trim() || undefined,
-                to: to.trim() || undefined,
-                numbers: selectedNumbers.length ? selectedNumbers : undefined,
-                resourceIds: selectedResources.length ? selectedResources.map((r) => r.id) : undefined,
-                unitIds: selectedUnits.length ? selectedUnits.map((u) => u.id) : undefined,
-            });
-
-            setRows(Array.isArray(data) ? (data as any) : []);
+            const page = await receiptsApi.list(
+                {
+                    from: from.trim() || undefined,
+                    to: to.trim() || undefined,
+                    numbers: selectedNumbers.length ? selectedNumbers : undefined,
+                    resourceIds: selectedResources.length ? selectedResources.map((r) => r.id) : undefined,
+                    unitIds: selectedUnits.length ? selectedUnits.map((u) => u.id) : undefined,
+                },
+                cursor
+            );
+
+            const data = Array.isArray(page.items) ? (page.items as any as ReceiptListItem[]) : [];
+            setRows((prev) => (cursor ? [...prev, ...data] : data));
+            setNextCursor(page.nextCursor);
         } catch (e: unknown) {
             const err = e as { userMessage?: string; message?: string };
             notify(err.userMessage ?? err.message ?? "Failed to load receipts", "error");
-            setRows([]);
+            if (!cursor) {
+                setRows([]);
+                setNextCursor(undefined);
+            }
         } finally {
             setLoading(false);
         }
@@ -192,6 +211,7 @@ export default function ReceiptsPage() {
         if (!date.trim()) return notify("Date is required", "warning");
 
         const payload = {
+            version: editing?.version,
             number: number.trim(),
             date: date.trim(),
             items: fromDraft(items).filter((x) => x.resourceId > 0 && x.unitId > 0 && Number(x.quantity) > 0),
@@ -346,9 +366,11 @@ export default function ReceiptsPage() {
 
                         <Autocomplete
                             multiple
-                            options={allNumbers}
+                            options={numberOptions}
+                            filterOptions={(x) => x}
                             value={selectedNumbers}
                             onChange={(_, v) => setSelectedNumbers(v)}
+                            onInputChange={(_, v) => setNumberInput(v)}
                             limitTags={2}
                             renderInput={(params) => <TextField {...params} label="Numbers" placeholder="All" />}
                             sx={{ minWidth: 320, flex: 1 }}
@@ -413,6 +435,15 @@ export default function ReceiptsPage() {
                 />
             </TableCard>
 
+            <Stack direction="row" alignItems="center" justifyContent="space-between" sx={{ mt: 1.5 }}>
+                <Typography variant="body2" color="text.secondary">
+                    Loaded {rows.length}{nextCursor ? " (more available)" : ""}
+                </Typography>
+                <Button variant="outlined" disabled={!nextCursor || loading} onClick={() => void loadReceipts(nextCursor)}>
+                    Load more
+                </Button>
+            </Stack>
+
             <Menu anchorEl={menuAnchor} open={!!menuAnchor} onClose={closeMenu}>
                 <MenuItem
                     onClick={() => {
@@ -6,6 +6,7 @@ import DoneIcon from "@mui/icons-material/TaskAlt";
 import UndoIcon from "@mui/icons-material/Undo";
 import EditIcon from "@mui/icons-material/EditOutlined";
 import {
+    Autocomplete,
     Box,
     Button,
     Chip,
@@ -35,7 +36,7 @@ import ConfirmDialog from "../../components/common/ConfirmDialog";
 import { useAppSnackbar } from "../../components/common/AppSnackbar";
 
 import type { Shipment, ShipmentItem, ShipmentState } from "../../types/shipment";
-import { shipmentsApi, type ShipmentPayload } from "../../api/shipmentsApi";
+import { shipmentsApi, type ShipmentPayload, type ShipmentsListParams } from "../../api/shipmentsApi";
 import { clientsApi } from "../../api/clientsApi";
 import { resourcesApi } from "../../api/resourcesApi";
 import { unitsApi } from "../../api/unitsApi";
@@ -60,12 +61,17 @@ export default function ShipmentsPage() {
 
     const [rows, setRows] = React.useState<Shipment[]>([]);
     const [loading, setLoading] = React.useState(false);
+    const [nextCursor, setNextCursor] = React.useState<string | undefined>(undefined);
+    const [total, setTotal] = React.useState<{ count: number; estimated: boolean } | null>(null);
+    // Filters of the first page, so "Load more" continues the same list.
+    const listParams = React.useRef<ShipmentsListParams | undefined>(undefined);
 
     // lookups
     const [clients, setClients] = React.useState<Option[]>([]);
     const [resources, setResources] = React.useState<Option[]>([]);
     const [units, setUnits] = React.useState<Option[]>([]);
-    const [numbers, setNumbers] = React.useState<string[]>([]);
+    const [numberInput, setNumberInput] = React.useState("");
+    const [numberOptions, setNumberOptions] = React.useState<string[]>([]);
 
     // filters
     const [dateFrom, setDateFrom] = React.useState<string>("");
@@ -109,23 +115,36 @@ export default function ShipmentsPage() {
 
     const loadLookups = React.useCallback(async () => {
         try {
-            const [c, r, u, n] = await Promise.all([
+            const [c, r, u] = await Promise.all([
                 clientsApi.list(undefined, "ACTIVE"),
                 resourcesApi.list(undefined, "ACTIVE"),
                 unitsApi.list(undefined, "ACTIVE"),
-                shipmentsApi.numbers(),
             ]);
 
             setClients(c.map((x) => ({ id: x.id, name: x.name })));
             setResources(r.map((x) => ({ id: x.id, name: x.name })));
             setUnits(u.map((x) => ({ id: x.id, name: x.name })));
-            setNumbers(Array.isArray(n) ? n : []);
         } catch (e: unknown) {
             const err = e as { userMessage?: string; message?: string };
             notify(err.userMessage ?? err.message ?? "Failed to load dropdowns", "error");
         }
     }, [notify]);
 
+    // Number suggestions come from the server's prefix index as the user types.
+    React.useEffect(() => {
+        let active = true;
+        const t = window.setTimeout(() => {
+            shipmentsApi
+                .numbers(numberInput)
+                .then((n) => active && setNumberOptions(Array.isArray(n) ? n : []))
+                .catch(() => active && setNumberOptions([]));
+        }, 200);
+        return () => {
+            active = false;
+            window.clearTimeout(t);
+        };
+    }, [numberInput]);
+
     const load = React.useCallback(
         async (withFilters: boolean) => {
             setLoading(true);
@@ -142,12 +161,17 @@ export default function ShipmentsPage() {
                     }
                     : undefined;
 
-                const data = await shipmentsApi.list(params);
-                setRows(Array.isArray(data) ? data : []);
+                listParams.current = params;
+                const page = await shipmentsApi.list(params, undefined, true);
+                setRows(Array.isArray(page.items) ? page.items : []);
+                setNextCursor(page.nextCursor);
+                setTotal(page.total != null ? { count: page.total, estimated: !!page.totalEstimated } : null);
             } catch (e: unknown) {
                 const err = e as { userMessage?: string; message?: string };
                 notify(err.userMessage ?? err.message ?? "Load failed", "error");
                 setRows([]);
+                setNextCursor(undefined);
+                setTotal(null);
             } finally {
                 setLoading(false);
             }
@@ -155,6 +179,22 @@ export default function ShipmentsPage() {
         [dateFrom, dateTo, fNumbers, fResourceIds, fUnitIds, fClientId, fState, notify]
     );
 
+    const loadMore = React.useCallback(async () => {
+        if (!nextCursor) return;
+        setLoading(true);
+        try {
+            const page = await shipmentsApi.list(listParams.current, nextCursor);
+            const data = Array.isArray(page.items) ? page.items : [];
+            setRows((prev) => [...prev, ...data]);
+            setNextCursor(page.nextCursor);
+        } catch (e: unknown) {
+            const err = e as { userMessage?: string; message?: string };
+            notify(err.userMessage ?? err.message ?? "Load failed", "error");
+        } finally {
+            setLoading(false);
+        }
+    }, [nextCursor, notify]);
+
     React.useEffect(() => {
         void loadLookups();
         void load(false);
@@ -211,6 +251,7 @@ export default function ShipmentsPage() {
         if (errMsg) return notify(errMsg, "warning");
 
         const payload: ShipmentPayload = {
+            version: editing?.version,
             number: number.trim(),
             date: date.trim(),
             clientId,
@@ -417,21 +458,17 @@ export default function ShipmentsPage() {
                             InputLabelProps={{ shrink: true }}
                         />
 
-                        <FormControl sx={{ width: 240 }}>
-                            <InputLabel>Numbers</InputLabel>
-                            <Select
-                                label="Numbers"
-                                multiple
-                                value={fNumbers}
-                                onChange={(e) => setFNumbers(e.target.value as string[])}
-                            >
-                                {numbers.map((n) => (
-                                    <MenuItem key={n} value={n}>
-                                        {n}
-                                    </MenuItem>
-                                ))}
-                            </Select>
-                        </FormControl>
+                        <Autocomplete
+                            multiple
+                            options={numberOptions}
+                            filterOptions={(x) => x}
+                            value={fNumbers}
+                            onChange={(_, v) => setFNumbers(v)}
+                            onInputChange={(_, v) => setNumberInput(v)}
+                            limitTags={2}
+                            renderInput={(params) => <TextField {...params} label="Numbers" />}
+                            sx={{ width: 240 }}
+                        />
 
                         <FormControl sx={{ width: 240 }}>
                             <InputLabel>Resources</InputLabel>
@@ -522,6 +559,16 @@ export default function ShipmentsPage() {
                 />
             </TableCard>
 
+            <Stack direction="row" alignItems="center" justifyContent="space-between" sx={{ mt: 1.5 }}>
+                <Typography variant="body2" color="text.secondary">
+                    Loaded {rows.length}
+                    {total ? ` of ${total.estimated ? "about " : ""}${total.count}` : ""}
+                </Typography>
+                <Button variant="outlined" disabled={!nextCursor || loading} onClick={() => void loadMore()}>
+                    Load more
+                </Button>
+            </Stack>
+
             <Menu anchorEl={menuAnchor} open={!!menuAnchor} onClose={closeMenu}>
                 <MenuItem
                     onClick={() => {
@@ -3,4 +3,12 @@ export type StateFilter = "ALL" | EntityState;
 
 export function toApiState(filter: StateFilter): EntityState | undefined {
     return filter === "ALL" ? undefined : filter;
-}
\ No newline at end of file
+}
+
+/** One page of a cursor-paged list; `nextCursor` is absent on the last page. */
+export type CursorPage<T> = {
+    items: T[];
+    nextCursor?: string;
+    total?: number;
+    totalEstimated?: boolean;
+};
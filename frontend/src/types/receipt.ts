@@ -6,6 +6,7 @@ export type ReceiptItem = {
 
 export type Receipt = {
     id: number;
+    version: number;
     number: string;
     date: string; // "YYYY-MM-DD"
     items?: ReceiptItem[];
@@ -8,6 +8,7 @@ export type ShipmentItem = {
 
 export type Shipment = {
     id: number;
+    version: number;
     number: string;
     date: string; // YYYY-MM-DD
     clientId: number;